@@ -0,0 +1,77 @@
+package battleships.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import battleships.ai.MonteCarloStrategy;
+import battleships.ai.ProbabilityDensityStrategy;
+import battleships.models.Game;
+import battleships.models.GameBoard;
+import battleships.sim.ShootingStrategy;
+
+/**
+ * Time for the computer opponents to pick and fire a shot, on the default 6x6
+ * board and on a 100x100 board. The Monte Carlo opponent samples on one thread,
+ * with its default budget of 1 ms per shot
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AiBenchmark {
+
+    @State(Scope.Thread)
+    public static class Opponent {
+        @Param({ "6", "100" })
+        public int size;
+
+        @Param({ "density", "montecarlo" })
+        public String opponent;
+
+        SplittableRandom random;
+        Game game;
+        GameBoard enemyBoard;
+        ShootingStrategy strategy;
+
+        @Setup
+        public void setup() {
+            random = new SplittableRandom(42);
+            strategy = opponent.equals("density") ? new ProbabilityDensityStrategy(random)
+                    : new MonteCarloStrategy(random);
+            newGame();
+        }
+
+        void newGame() {
+            game = new Game(size, size);
+            game.randomizeCurrentBoard(random);
+            game.submitBoard("Player 1");
+            game.randomizeCurrentBoard(random);
+            game.submitBoard("Player 2");
+            enemyBoard = game.getPlayer2().getFriendlyBoard();
+            strategy.newGame(game);
+        }
+    }
+
+    /** Picks and fires one shot, starting a new game when all ships are sunk */
+    @Benchmark
+    public long nextShot(Opponent state) {
+        if (state.enemyBoard.isGameOver())
+            state.newGame();
+        long shot = state.strategy.nextShot(state.enemyBoard);
+        state.enemyBoard.resolveShot(ShootingStrategy.shotX(shot), ShootingStrategy.shotY(shot));
+        return shot;
+    }
+}
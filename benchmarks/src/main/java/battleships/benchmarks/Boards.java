@@ -0,0 +1,60 @@
+package battleships.benchmarks;
+
+import java.util.random.RandomGenerator;
+
+import battleships.models.Game;
+import battleships.models.GameBoard;
+
+/**
+ * Builds the boards and games the benchmarks run on
+ */
+final class Boards {
+
+    private Boards() {
+    }
+
+    /** @return Every square (x * height + y) of a board, in random order */
+    static int[] shuffledSquares(int width, int height, RandomGenerator random) {
+        int[] squares = new int[width * height];
+        for (int i = 0; i < squares.length; i++) {
+            squares[i] = i;
+        }
+        for (int i = squares.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int square = squares[i];
+            squares[i] = squares[j];
+            squares[j] = square;
+        }
+        return squares;
+    }
+
+    /** @return Board with the default fleet where half of the squares are shot */
+    static GameBoard halfShot(int width, int height, RandomGenerator random) {
+        GameBoard board = new GameBoard(width, height);
+        board.placeAllBattleships(new Game(width, height).getBattleships(), random);
+        shootHalf(board, random);
+        return board;
+    }
+
+    /**
+     * @return Game after the placement phase, where half of the squares on both
+     *         boards are shot
+     */
+    static Game halfPlayedGame(int width, int height, RandomGenerator random) {
+        Game game = new Game(width, height);
+        game.randomizeCurrentBoard(random);
+        game.submitBoard("Player 1");
+        game.randomizeCurrentBoard(random);
+        game.submitBoard("Player 2");
+        shootHalf(game.getPlayer1().getFriendlyBoard(), random);
+        shootHalf(game.getPlayer2().getFriendlyBoard(), random);
+        return game;
+    }
+
+    private static void shootHalf(GameBoard board, RandomGenerator random) {
+        int[] squares = shuffledSquares(board.getWidth(), board.getHeight(), random);
+        for (int i = 0; i < squares.length / 2; i++) {
+            board.fireShot(squares[i] / board.getHeight(), squares[i] % board.getHeight());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package battleships.benchmarks;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import battleships.models.Game;
+import battleships.models.filemanagement.FileHandler;
+
+/**
+ * Saving and loading a half played game through FileHandler, on square boards
+ * from 6x6 up to 1024x1024. FileHandler resolves save files relative to the
+ * working directory, so the save file is created there in setup
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileHandlerBenchmark {
+    private static final String fileName = "benchmark";
+
+    @Param({ "6", "64", "256", "1024" })
+    public int size;
+
+    private FileHandler fileHandler;
+    private Game game;
+
+    @Setup
+    public void setup() throws IOException {
+        fileHandler = new FileHandler();
+        game = Boards.halfPlayedGame(size, size, new SplittableRandom(42));
+        File file = fileHandler.getReceiptFile(fileName);
+        file.getParentFile().mkdirs();
+        file.createNewFile();
+        fileHandler.writeGameState(fileName, game);
+    }
+
+    @Benchmark
+    public Game writeGameState() throws FileNotFoundException {
+        fileHandler.writeGameState(fileName, game);
+        return game;
+    }
+
+    @Benchmark
+    public Game readGameState() throws FileNotFoundException {
+        return fileHandler.readGameState(fileName);
+    }
+}
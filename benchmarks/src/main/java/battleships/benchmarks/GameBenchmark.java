@@ -0,0 +1,45 @@
+package battleships.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import battleships.models.Game;
+
+/**
+ * Serialization of a half played game, on square boards from 6x6 up to
+ * 1024x1024
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+    @Param({ "6", "64", "256", "1024" })
+    public int size;
+
+    private Game game;
+
+    @Setup
+    public void setup() {
+        game = Boards.halfPlayedGame(size, size, new SplittableRandom(42));
+    }
+
+    @Benchmark
+    public String serialize() {
+        return game.serialize();
+    }
+}
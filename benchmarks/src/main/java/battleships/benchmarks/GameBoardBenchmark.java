@@ -0,0 +1,125 @@
+package battleships.benchmarks;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import battleships.models.Battleship;
+import battleships.models.Game;
+import battleships.models.GameBoard;
+
+/**
+ * Hot paths of GameBoard, on square boards from the default 6x6 up to 1024x1024
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBoardBenchmark {
+
+    @State(Scope.Thread)
+    public static class Placement {
+        @Param({ "6", "64", "256", "1024" })
+        public int size;
+
+        GameBoard board;
+        List<Battleship> ships;
+        SplittableRandom random;
+
+        @Setup
+        public void setup() {
+            board = new GameBoard(size, size);
+            ships = new Game(size, size).getBattleships();
+            random = new SplittableRandom(42);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Shooting {
+        @Param({ "6", "64", "256", "1024" })
+        public int size;
+
+        GameBoard board;
+        // Every square in random order, shot one by one. The board is emptied when
+        // all squares have been shot
+        int[] shots;
+        int nextShot;
+
+        @Setup
+        public void setup() {
+            board = new GameBoard(size, size);
+            board.placeAllBattleships(new Game(size, size).getBattleships(), new SplittableRandom(42));
+            shots = Boards.shuffledSquares(size, size, new SplittableRandom(7));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class HalfShot {
+        @Param({ "6", "64", "256", "1024" })
+        public int size;
+
+        GameBoard board;
+        // A square that is not shot
+        int freeX;
+        int freeY;
+
+        @Setup
+        public void setup() {
+            board = Boards.halfShot(size, size, new SplittableRandom(42));
+            for (int square = 0; square < size * size; square++) {
+                if (!board.isHit(square / size, square % size)) {
+                    freeX = square / size;
+                    freeY = square % size;
+                    break;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public GameBoard placeAllBattleships(Placement state) {
+        state.board.placeAllBattleships(state.ships, state.random);
+        return state.board;
+    }
+
+    @Benchmark
+    public GameBoard fireShot(Shooting state) {
+        if (state.nextShot == state.shots.length) {
+            state.board.emptyBoard();
+            state.nextShot = 0;
+        }
+        int square = state.shots[state.nextShot++];
+        state.board.fireShot(square / state.size, square % state.size);
+        return state.board;
+    }
+
+    @Benchmark
+    public boolean isGameOver(HalfShot state) {
+        return state.board.isGameOver();
+    }
+
+    @Benchmark
+    public GameBoard copy(HalfShot state) {
+        return state.board.copy();
+    }
+
+    @Benchmark
+    public GameBoard forkAndShoot(HalfShot state) {
+        GameBoard fork = state.board.fork();
+        fork.fireShot(state.freeX, state.freeY);
+        return fork;
+    }
+}
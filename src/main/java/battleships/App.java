@@ -1,5 +1,7 @@
 package battleships;
 
+import battleships.models.filemanagement.AsyncFileHandler;
+import battleships.models.filemanagement.FileHandler;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -9,6 +11,9 @@ import java.io.IOException;
 
 public class App extends Application {
 
+    // Saves are written off the JavaFX thread, by one writer shared by all views
+    private static final AsyncFileHandler fileHandler = new AsyncFileHandler(new FileHandler());
+
     public static void main(String[] args) {
         Application.launch(args);
     }
@@ -20,4 +25,14 @@ public class App extends Application {
         primaryStage.show();
     }
 
+    @Override
+    public void stop() throws IOException {
+        // Saves still queued are written before the application exits
+        fileHandler.close();
+    }
+
+    public static AsyncFileHandler getFileHandler() {
+        return fileHandler;
+    }
+
 }
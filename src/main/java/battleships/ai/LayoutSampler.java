@@ -0,0 +1,131 @@
+package battleships.ai;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+import battleships.models.ShipPlacer;
+
+/**
+ * Samples layouts of the ships afloat that agree with what a ShotTracker knows:
+ * no ship covers a miss or a sunk ship, and every open hit is covered by a ship.
+ * Ships are placed with ShipPlacer, the same way placeAllBattleships() places
+ * them, and layouts that leave an open hit uncovered are rejected.
+ *
+ * All buffers are allocated up front, so sampling allocates nothing. A sampler
+ * is used by one thread at a time
+ */
+class LayoutSampler {
+    private final int width;
+    private final int height;
+    private final ShipPlacer placer;
+
+    // Squares no ship may cover, and squares a ship must cover
+    private final long[] blocked;
+    private final long[] required;
+    // Layout being sampled
+    private final long[] layout;
+
+    // Ships afloat, longest first
+    private int[] ships = new int[0];
+    private int shipCount;
+
+    /**
+     * @param width  Width of the boards to sample layouts for
+     * @param height Height of the boards to sample layouts for
+     */
+    LayoutSampler(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.placer = new ShipPlacer(width, height);
+        int words = (width * height + 63) >>> 6;
+        this.blocked = new long[words];
+        this.required = new long[words];
+        this.layout = new long[words];
+    }
+
+    /** Reads the knowledge to sample from. Call before each shot */
+    void prepare(ShotTracker tracker) {
+        System.arraycopy(tracker.getBlocked(), 0, blocked, 0, blocked.length);
+        Arrays.fill(required, 0);
+        for (int h = 0; h < tracker.getOpenHitCount(); h++) {
+            int square = tracker.getOpenHit(h);
+            required[square >>> 6] |= 1L << square;
+        }
+        shipCount = 0;
+        for (int i = tracker.getLengthCount() - 1; i >= 0; i--) {
+            for (int n = 0; n < tracker.getAfloat(i); n++) {
+                if (shipCount == ships.length)
+                    ships = Arrays.copyOf(ships, Math.max(4, shipCount * 2));
+                ships[shipCount++] = tracker.getLength(i);
+            }
+        }
+    }
+
+    /**
+     * Samples layouts until maxSamples are accepted or the deadline passes, and
+     * adds one to counts for every square covered by a ship in each accepted
+     * layout
+     *
+     * @param deadline Value of System.nanoTime() to stop at
+     * @return Amount of layouts accepted
+     */
+    int sample(RandomGenerator random, int[] counts, int maxSamples, long deadline) {
+        int accepted = 0;
+        while (accepted < maxSamples && System.nanoTime() - deadline < 0) {
+            if (!sampleLayout(random))
+                continue;
+            accepted++;
+            for (int i = 0; i < layout.length; i++) {
+                for (long word = layout[i] & ~blocked[i]; word != 0; word &= word - 1) {
+                    counts[i * 64 + Long.numberOfTrailingZeros(word)]++;
+                }
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Samples layouts like sample(), but stores each accepted layout instead of
+     * counting it: the squares covered by the ships afloat, one bit per square,
+     * in getWords() consecutive longs
+     *
+     * @param layouts  Buffer for at least maxSamples layouts from offset
+     * @param offset   Index in layouts to store the first layout at
+     * @param deadline Value of System.nanoTime() to stop at
+     * @return Amount of layouts accepted and stored
+     */
+    int sampleLayouts(RandomGenerator random, long[] layouts, int offset, int maxSamples, long deadline) {
+        int accepted = 0;
+        while (accepted < maxSamples && System.nanoTime() - deadline < 0) {
+            if (!sampleLayout(random))
+                continue;
+            int start = offset + accepted * layout.length;
+            for (int i = 0; i < layout.length; i++) {
+                layouts[start + i] = layout[i] & ~blocked[i];
+            }
+            accepted++;
+        }
+        return accepted;
+    }
+
+    /** @return Amount of longs in a stored layout */
+    int getWords() {
+        return layout.length;
+    }
+
+    /**
+     * Places the ships afloat in the layout buffer
+     *
+     * @return Whether the layout agrees with the knowledge
+     */
+    private boolean sampleLayout(RandomGenerator random) {
+        System.arraycopy(blocked, 0, layout, 0, blocked.length);
+        if (!placer.placeOnMask(layout, ships, shipCount, random))
+            return false;
+        for (int i = 0; i < layout.length; i++) {
+            if ((required[i] & ~layout[i]) != 0)
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,212 @@
+package battleships.ai;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.random.RandomGenerator;
+
+import battleships.models.Game;
+import battleships.models.GameBoard;
+import battleships.models.GameRules;
+import battleships.sim.ShootingStrategy;
+
+/**
+ * Shoots the square most likely to hold a ship, estimated by sampling layouts of
+ * the ships afloat that agree with the hits, misses and sunk ships on the enemy
+ * board. Unlike ProbabilityDensityStrategy, which counts each ship on its own,
+ * the samples place the whole fleet at once, so ships are never counted on top
+ * of each other.
+ *
+ * Sampling stops when maxSamples layouts are found or the time budget for the
+ * shot is used, and is split between worker threads. Each worker keeps its
+ * sampler and counts between shots. If no layout is found in time, the shot is
+ * picked by a ProbabilityDensityStrategy instead.
+ *
+ * With a TranspositionTable the shot picked for each state of the enemy board is
+ * cached by the known hash of the board, see GameBoard.getKnownHash(). States
+ * that come up again, like the openings of simulated games, then cost no
+ * sampling, at the price of always getting the same shot.
+ *
+ * With more than one worker the strategy owns a thread pool, so close it when
+ * done
+ */
+public class MonteCarloStrategy implements ShootingStrategy, Closeable {
+    private final RandomGenerator random;
+    private final int workers;
+    private final long budgetNanos;
+    private final int maxSamples;
+
+    private final ShotTracker tracker = new ShotTracker();
+    private final ProbabilityDensityStrategy fallback;
+    private final SplittableRandom[] workerRandoms;
+    private final List<Callable<Integer>> tasks = new ArrayList<>();
+    private final ForkJoinPool pool;
+
+    // Shots picked by known hash of the enemy board, for the rules cacheRules
+    private final TranspositionTable cache;
+    private GameRules cacheRules;
+
+    private LayoutSampler[] samplers = new LayoutSampler[0];
+    private int[][] counts = new int[0][];
+    private long deadline;
+    private int samples;
+
+    /**
+     * @param random      Source of randomness. Each worker gets its own generator
+     *                    seeded from it
+     * @param workers     Amount of threads sampling for each shot
+     * @param budgetNanos Maximum time spent sampling for each shot
+     * @param maxSamples  Amount of layouts to sample for each shot, if time allows
+     */
+    public MonteCarloStrategy(RandomGenerator random, int workers, long budgetNanos, int maxSamples)
+            throws IllegalArgumentException {
+        this(random, workers, budgetNanos, maxSamples, null);
+    }
+
+    /**
+     * Same as MonteCarloStrategy(RandomGenerator, int, long, int), caching the
+     * picked shots in cache
+     *
+     * @param cache Table of shots by state of the enemy board, or null to sample
+     *              for every shot. Cleared when the rules of the games change
+     */
+    public MonteCarloStrategy(RandomGenerator random, int workers, long budgetNanos, int maxSamples,
+            TranspositionTable cache) throws IllegalArgumentException {
+        if (workers < 1 || budgetNanos < 1 || maxSamples < 1)
+            throw new IllegalArgumentException("Workers, time budget and samples must be positive");
+        this.random = random;
+        this.workers = workers;
+        this.budgetNanos = budgetNanos;
+        this.maxSamples = maxSamples;
+        this.cache = cache;
+        this.fallback = new ProbabilityDensityStrategy(random);
+        this.workerRandoms = new SplittableRandom[workers];
+        for (int w = 0; w < workers; w++) {
+            workerRandoms[w] = new SplittableRandom(random.nextLong());
+            int worker = w;
+            // Splits the samples as evenly as possible between the workers
+            int quota = maxSamples / workers + (w < maxSamples % workers ? 1 : 0);
+            tasks.add(() -> samplers[worker].sample(workerRandoms[worker], counts[worker], quota, deadline));
+        }
+        this.pool = workers > 1 ? new ForkJoinPool(workers) : null;
+    }
+
+    /** One worker and at most 1 ms and 2000 samples per shot */
+    public MonteCarloStrategy(RandomGenerator random) {
+        this(random, 1, 1_000_000, 2000);
+    }
+
+    /**
+     * @throws IllegalArgumentException When the fleet of the game is not known
+     */
+    @Override
+    public void newGame(Game game) throws IllegalArgumentException {
+        tracker.reset(game);
+        fallback.newGame(game);
+        if (cache != null && !game.getRules().equals(cacheRules)) {
+            cache.clear();
+            cacheRules = game.getRules();
+        }
+        int width = game.getBoardWidth();
+        int height = game.getBoardHeight();
+        if (counts.length == 0 || counts[0].length != width * height) {
+            samplers = new LayoutSampler[workers];
+            counts = new int[workers][width * height];
+            for (int w = 0; w < workers; w++) {
+                samplers[w] = new LayoutSampler(width, height);
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalStateException When a worker fails or is interrupted
+     */
+    @Override
+    public long nextShot(GameBoard enemyBoard) throws IllegalStateException {
+        tracker.catchUp(enemyBoard);
+        long key = enemyBoard.getKnownHash();
+        if (cache != null) {
+            long shot = cache.get(key, -1);
+            // Two states with the same hash are unlikely, but must not lead to a
+            // shot at a square that is already known
+            if (shot >= 0 && tracker.isUnknown(
+                    ShootingStrategy.shotX(shot) * tracker.getHeight() + ShootingStrategy.shotY(shot))) {
+                samples = 0;
+                return shot;
+            }
+        }
+        for (int w = 0; w < workers; w++) {
+            samplers[w].prepare(tracker);
+            Arrays.fill(counts[w], 0);
+        }
+        deadline = System.nanoTime() + budgetNanos;
+        samples = pool == null ? sampleOnThisThread() : sampleOnPool();
+        if (samples == 0)
+            return fallback.nextShot(enemyBoard);
+
+        int height = tracker.getHeight();
+        int best = -1;
+        long bestCount = -1;
+        int ties = 0;
+        for (int square = 0; square < counts[0].length; square++) {
+            if (!tracker.isUnknown(square))
+                continue;
+            long count = 0;
+            for (int w = 0; w < workers; w++) {
+                count += counts[w][square];
+            }
+            if (count > bestCount) {
+                best = square;
+                bestCount = count;
+                ties = 1;
+            } else if (count == bestCount && random.nextInt(++ties) == 0) {
+                best = square;
+            }
+        }
+        long shot = ShootingStrategy.shot(best / height, best % height);
+        if (cache != null)
+            cache.put(key, shot);
+        return shot;
+    }
+
+    private int sampleOnThisThread() {
+        try {
+            return tasks.get(0).call();
+        } catch (Exception ex) {
+            throw new IllegalStateException("Sampling failed", ex);
+        }
+    }
+
+    private int sampleOnPool() {
+        int total = 0;
+        try {
+            for (Future<Integer> worker : pool.invokeAll(tasks)) {
+                total += worker.get();
+            }
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Sampling failed", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sampling was interrupted", ex);
+        }
+        return total;
+    }
+
+    /** @return Amount of layouts sampled for the latest shot */
+    public int getSamples() {
+        return samples;
+    }
+
+    /** Stops the worker threads */
+    @Override
+    public void close() {
+        if (pool != null)
+            pool.shutdownNow();
+    }
+}
@@ -0,0 +1,234 @@
+package battleships.ai;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+import battleships.models.Game;
+import battleships.models.GameBoard;
+import battleships.sim.ShootingStrategy;
+
+/**
+ * Shoots where ships are most likely to be. For every square the strategy keeps
+ * a heat value: the number of ways the ships still afloat can be placed over the
+ * square without covering a miss or a sunk ship. While hunting it shoots the
+ * hottest square that is not shot yet. After a hit it targets the squares next
+ * to unsunk hits, scoring them by the placements that cover the hits.
+ *
+ * The heat is updated incrementally. A miss or a sunk square only removes the
+ * placements covering it, so a shot costs time proportional to the squared ship
+ * lengths, and picking a shot is one pass over the squares. The state of the
+ * enemy board is read from its shot log, so the strategy can take over a game
+ * that is already in progress
+ */
+public class ProbabilityDensityStrategy implements ShootingStrategy {
+    private final RandomGenerator random;
+
+    private final ShotTracker tracker = new ShotTracker() {
+        @Override
+        protected void blocking(int square) {
+            removePlacements(square);
+        }
+
+        @Override
+        protected void sinking(int i) {
+            removeShip(i);
+        }
+    };
+
+    private int width;
+    private int height;
+
+    // placements[i][square] is the number of open placements of a ship of the
+    // tracker's length i covering the square, heat[square] is the sum over the
+    // ships afloat
+    private int[][] placements = new int[0][];
+    private long[] heat = new long[0];
+
+    // Target scores, and the squares with a score to clear before the next shot
+    private long[] targetScore = new long[0];
+    private int[] scored = new int[0];
+
+    public ProbabilityDensityStrategy(RandomGenerator random) {
+        this.random = random;
+    }
+
+    /**
+     * @throws IllegalArgumentException When the fleet of the game is not known
+     */
+    @Override
+    public void newGame(Game game) throws IllegalArgumentException {
+        tracker.reset(game);
+        width = game.getBoardWidth();
+        height = game.getBoardHeight();
+        int size = width * height;
+        if (heat.length != size) {
+            heat = new long[size];
+            targetScore = new long[size];
+            scored = new int[size];
+        }
+        Arrays.fill(heat, 0);
+        int lengths = tracker.getLengthCount();
+        if (placements.length != lengths || (lengths > 0 && placements[0].length != size))
+            placements = new int[lengths][size];
+        for (int i = 0; i < lengths; i++) {
+            countPlacements(i);
+        }
+    }
+
+    /** Counts every placement of a ship of length i on the empty board */
+    private void countPlacements(int i) {
+        int length = tracker.getLength(i);
+        int[] counts = placements[i];
+        Arrays.fill(counts, 0);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (x + length <= width) {
+                    for (int j = 0; j < length; j++) {
+                        counts[(x + j) * height + y]++;
+                    }
+                }
+                // A ship of length 1 covers the same square along both axes
+                if (length > 1 && y + length <= height) {
+                    for (int j = 0; j < length; j++) {
+                        counts[x * height + y + j]++;
+                    }
+                }
+            }
+        }
+        for (int square = 0; square < counts.length; square++) {
+            heat[square] += (long) tracker.getAfloat(i) * counts[square];
+        }
+    }
+
+    @Override
+    public long nextShot(GameBoard enemyBoard) {
+        tracker.catchUp(enemyBoard);
+        int square = tracker.getOpenHitCount() > 0 ? pickTarget() : -1;
+        if (square < 0)
+            square = pickHottest();
+        return ShootingStrategy.shot(square / height, square % height);
+    }
+
+    /** Removes the heat of a ship that was sunk */
+    private void removeShip(int i) {
+        int[] counts = placements[i];
+        for (int square = 0; square < heat.length; square++) {
+            heat[square] -= counts[square];
+        }
+    }
+
+    /** Removes every placement covering a square that was just blocked */
+    private void removePlacements(int square) {
+        int x = square / height;
+        int y = square % height;
+        for (int i = 0; i < placements.length; i++) {
+            int length = tracker.getLength(i);
+            for (int start = Math.max(0, x - length + 1); start <= x && start + length <= width; start++) {
+                removePlacement(i, start * height + y, true);
+            }
+            if (length == 1)
+                continue;
+            for (int start = Math.max(0, y - length + 1); start <= y && start + length <= height; start++) {
+                removePlacement(i, x * height + start, false);
+            }
+        }
+    }
+
+    /** Removes the placement from the heat, unless it was blocked already */
+    private void removePlacement(int i, int first, boolean alongX) {
+        if (!tracker.isOpen(i, first, alongX))
+            return;
+        int length = tracker.getLength(i);
+        int step = alongX ? height : 1;
+        int[] counts = placements[i];
+        int afloat = tracker.getAfloat(i);
+        for (int j = 0, square = first; j < length; j++, square += step) {
+            counts[square]--;
+            heat[square] -= afloat;
+        }
+    }
+
+    /**
+     * Scores the squares around open hits by the open placements covering both
+     * the square and the hits. A placement covering several hits is counted once
+     * per hit, so squares in line with the hits are preferred
+     *
+     * @return Square with the highest score, or -1 if no placement covers a hit
+     */
+    private int pickTarget() {
+        int scoredCount = 0;
+        for (int h = 0; h < tracker.getOpenHitCount(); h++) {
+            int x = tracker.getOpenHit(h) / height;
+            int y = tracker.getOpenHit(h) % height;
+            for (int i = 0; i < placements.length; i++) {
+                if (tracker.getAfloat(i) == 0)
+                    continue;
+                int length = tracker.getLength(i);
+                for (int start = Math.max(0, x - length + 1); start <= x && start + length <= width; start++) {
+                    scoredCount = scorePlacement(i, start * height + y, true, scoredCount);
+                }
+                if (length == 1)
+                    continue;
+                for (int start = Math.max(0, y - length + 1); start <= y && start + length <= height; start++) {
+                    scoredCount = scorePlacement(i, x * height + start, false, scoredCount);
+                }
+            }
+        }
+        int best = -1;
+        int ties = 0;
+        for (int s = 0; s < scoredCount; s++) {
+            int square = scored[s];
+            long score = targetScore[square];
+            if (best < 0 || score > targetScore[best]) {
+                best = square;
+                ties = 1;
+            } else if (score == targetScore[best] && random.nextInt(++ties) == 0) {
+                best = square;
+            }
+        }
+        for (int s = 0; s < scoredCount; s++) {
+            targetScore[scored[s]] = 0;
+        }
+        return best;
+    }
+
+    private int scorePlacement(int i, int first, boolean alongX, int scoredCount) {
+        if (!tracker.isOpen(i, first, alongX))
+            return scoredCount;
+        int length = tracker.getLength(i);
+        int step = alongX ? height : 1;
+        for (int j = 0, square = first; j < length; j++, square += step) {
+            if (!tracker.isUnknown(square))
+                continue;
+            if (targetScore[square] == 0)
+                scored[scoredCount++] = square;
+            targetScore[square] += tracker.getAfloat(i);
+        }
+        return scoredCount;
+    }
+
+    /** @return Unknown square with the most heat, ties broken randomly */
+    private int pickHottest() {
+        int best = -1;
+        int ties = 0;
+        for (int square = 0; square < heat.length; square++) {
+            if (!tracker.isUnknown(square))
+                continue;
+            if (best < 0 || heat[square] > heat[best]) {
+                best = square;
+                ties = 1;
+            } else if (heat[square] == heat[best] && random.nextInt(++ties) == 0) {
+                best = square;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return Heat of the square, the weighted number of open placements covering
+     *         it
+     */
+    public long getHeat(int x, int y) {
+        return heat[x * height + y];
+    }
+}
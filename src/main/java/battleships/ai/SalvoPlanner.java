@@ -0,0 +1,501 @@
+package battleships.ai;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+import battleships.models.Game;
+import battleships.models.GameBoard;
+import battleships.sim.ShootingStrategy;
+
+/**
+ * Plans all the shots of a turn at once. Layouts of the ships afloat are
+ * sampled as in MonteCarloStrategy and kept, so the planner can tell how the
+ * squares of a salvo hit together. A salvo is scored by its expected hits plus
+ * the probability that it hits at all, both estimated from the samples. Expected
+ * hits alone would just be the best squares one by one, the second term prefers
+ * salvos that spread their shots over ships that are likely to be in different
+ * places.
+ *
+ * The search considers the most likely squares only, and is a branch and bound
+ * over their combinations, split between worker threads by the first square of
+ * the salvo. Half of the latency budget goes to sampling and the rest to the
+ * search, which returns the best salvo found so far when time runs out.
+ *
+ * As a ShootingStrategy the planner fires a full salvo of maxShots shots before
+ * it plans the next one. With more than one worker it owns a thread pool, so
+ * close it when done
+ */
+public class SalvoPlanner implements ShootingStrategy, Closeable {
+    // Amount of search nodes between checks of the deadline
+    private static final int nodesPerCheck = 4096;
+
+    private final int workers;
+    private final long budgetNanos;
+    private final int maxSamples;
+    private final int maxCandidates;
+
+    private final ShotTracker tracker = new ShotTracker();
+    private final ProbabilityDensityStrategy fallback;
+    private final SplittableRandom[] workerRandoms;
+    private final ForkJoinPool pool;
+
+    private int width;
+    private int height;
+    private LayoutSampler[] samplers = new LayoutSampler[0];
+    // Sampled layouts of each worker, and how many each worker found
+    private long[][] layouts = new long[0][];
+    private int[] accepted;
+    private int samples;
+
+    // Samples with a ship on each square. Squares considered for the salvo, most
+    // likely first, with their counts and prefix sums of the counts
+    private int[] squareHits = new int[0];
+    private int[] candidates = new int[0];
+    private int[] candidateHits = new int[0];
+    private long[] hitPrefix = new long[0];
+    private int candidateCount;
+    // Bit s of candidate j's sampleBits is set if sample s has a ship on it
+    private long[] sampleBits = new long[0];
+    private int bitWords;
+
+    private int shotsPerTurn;
+    private long[] salvo = new long[0];
+    private int salvoNext;
+
+    /**
+     * @param random        Source of randomness. Each worker gets its own
+     *                      generator seeded from it
+     * @param workers       Amount of threads sampling and searching
+     * @param budgetNanos   Maximum time to plan a salvo
+     * @param maxSamples    Amount of layouts to sample for each salvo, if time
+     *                      allows
+     * @param maxCandidates Amount of the most likely squares the salvo is picked
+     *                      from
+     */
+    public SalvoPlanner(RandomGenerator random, int workers, long budgetNanos, int maxSamples, int maxCandidates)
+            throws IllegalArgumentException {
+        if (workers < 1 || budgetNanos < 1 || maxSamples < 1 || maxCandidates < 1)
+            throw new IllegalArgumentException("Workers, time budget, samples and candidates must be positive");
+        this.workers = workers;
+        this.budgetNanos = budgetNanos;
+        this.maxSamples = maxSamples;
+        this.maxCandidates = maxCandidates;
+        this.fallback = new ProbabilityDensityStrategy(random);
+        this.workerRandoms = new SplittableRandom[workers];
+        for (int w = 0; w < workers; w++) {
+            workerRandoms[w] = new SplittableRandom(random.nextLong());
+        }
+        this.accepted = new int[workers];
+        this.pool = workers > 1 ? new ForkJoinPool(workers) : null;
+    }
+
+    /** One worker, at most 5 ms and 2000 samples per salvo, and 16 candidates */
+    public SalvoPlanner(RandomGenerator random) {
+        this(random, 1, 5_000_000, 2000, 16);
+    }
+
+    /**
+     * @throws IllegalArgumentException When the fleet of the game is not known
+     */
+    @Override
+    public void newGame(Game game) throws IllegalArgumentException {
+        tracker.reset(game);
+        fallback.newGame(game);
+        shotsPerTurn = game.getRules().getShotsPerTurn();
+        salvoNext = salvo.length;
+        if (samplers.length == 0 || width != game.getBoardWidth() || height != game.getBoardHeight()) {
+            width = game.getBoardWidth();
+            height = game.getBoardHeight();
+            squareHits = new int[width * height];
+            samplers = new LayoutSampler[workers];
+            layouts = new long[workers][];
+            for (int w = 0; w < workers; w++) {
+                samplers[w] = new LayoutSampler(width, height);
+                layouts[w] = new long[quota(w) * samplers[w].getWords()];
+            }
+        }
+    }
+
+    /** @return Amount of samples worker w takes, splitting maxSamples evenly */
+    private int quota(int w) {
+        return maxSamples / workers + (w < maxSamples % workers ? 1 : 0);
+    }
+
+    /**
+     * Fires the next shot of the planned salvo, and plans a new salvo when the
+     * previous one is fired
+     *
+     * @throws IllegalStateException When every square of the board is shot, or a
+     *                               worker fails or is interrupted
+     */
+    @Override
+    public long nextShot(GameBoard enemyBoard) throws IllegalStateException {
+        // The board only tells which ship the latest shot sunk, so every shot is
+        // tracked as it lands, not only when the next salvo is planned
+        tracker.catchUp(enemyBoard);
+        while (salvoNext < salvo.length) {
+            long shot = salvo[salvoNext++];
+            if (!enemyBoard.isHit(ShootingStrategy.shotX(shot), ShootingStrategy.shotY(shot)))
+                return shot;
+        }
+        salvo = planSalvo(enemyBoard, shotsPerTurn);
+        if (salvo.length == 0)
+            throw new IllegalStateException("Every square of the board is shot");
+        salvoNext = 1;
+        return salvo[0];
+    }
+
+    /**
+     * Picks the shots of a turn
+     *
+     * @param enemyBoard Board to shoot at
+     * @param shots      Amount of shots in the salvo
+     * @return Distinct squares that are not shot yet, encoded with
+     *         ShootingStrategy.shot(). Fewer than shots if fewer squares are left
+     * @throws IllegalStateException When a worker fails or is interrupted
+     */
+    public long[] planSalvo(GameBoard enemyBoard, int shots) throws IllegalStateException {
+        long start = System.nanoTime();
+        tracker.catchUp(enemyBoard);
+        for (int w = 0; w < workers; w++) {
+            samplers[w].prepare(tracker);
+        }
+        long sampleDeadline = start + budgetNanos / 2;
+        runOnWorkers(w -> accepted[w] = samplers[w].sampleLayouts(workerRandoms[w], layouts[w], 0, quota(w),
+                sampleDeadline));
+        samples = 0;
+        for (int w = 0; w < workers; w++) {
+            samples += accepted[w];
+        }
+        if (samples == 0)
+            return fallbackSalvo(enemyBoard, shots);
+
+        findCandidates();
+        int size = Math.min(shots, candidateCount);
+        int[] best = search(size, start + budgetNanos);
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            int square = candidates[best[i]];
+            result[i] = ShootingStrategy.shot(square / height, square % height);
+        }
+        return result;
+    }
+
+    /**
+     * Ranks the unknown squares by how many samples have a ship on them, keeps the
+     * most likely ones as candidates and marks which samples hit each candidate
+     */
+    private void findCandidates() {
+        int size = width * height;
+        int[] hits = squareHits;
+        Arrays.fill(hits, 0);
+        forEachLayout((layout, offset, sample) -> {
+            for (int i = 0; i < samplers[0].getWords(); i++) {
+                for (long word = layout[offset + i]; word != 0; word &= word - 1) {
+                    hits[i * 64 + Long.numberOfTrailingZeros(word)]++;
+                }
+            }
+        });
+
+        if (candidates.length != maxCandidates) {
+            candidates = new int[maxCandidates];
+            candidateHits = new int[maxCandidates];
+            hitPrefix = new long[maxCandidates + 1];
+        }
+        // Insertion into a sorted array, ties broken by the lower square
+        candidateCount = 0;
+        for (int square = 0; square < size; square++) {
+            if (!tracker.isUnknown(square))
+                continue;
+            if (candidateCount == maxCandidates && hits[square] <= candidateHits[candidateCount - 1])
+                continue;
+            int j = Math.min(candidateCount, maxCandidates - 1);
+            while (j > 0 && candidateHits[j - 1] < hits[square]) {
+                candidates[j] = candidates[j - 1];
+                candidateHits[j] = candidateHits[j - 1];
+                j--;
+            }
+            candidates[j] = square;
+            candidateHits[j] = hits[square];
+            if (candidateCount < maxCandidates)
+                candidateCount++;
+        }
+        for (int j = 0; j < candidateCount; j++) {
+            hitPrefix[j + 1] = hitPrefix[j] + candidateHits[j];
+        }
+
+        bitWords = (samples + 63) >>> 6;
+        if (sampleBits.length < candidateCount * bitWords)
+            sampleBits = new long[candidateCount * bitWords];
+        Arrays.fill(sampleBits, 0);
+        forEachLayout((layout, offset, sample) -> {
+            for (int j = 0; j < candidateCount; j++) {
+                int square = candidates[j];
+                if ((layout[offset + (square >>> 6)] & (1L << square)) != 0)
+                    sampleBits[j * bitWords + (sample >>> 6)] |= 1L << sample;
+            }
+        });
+    }
+
+    private interface LayoutVisitor {
+        void visit(long[] layouts, int offset, int sample);
+    }
+
+    private void forEachLayout(LayoutVisitor visitor) {
+        int words = samplers[0].getWords();
+        int sample = 0;
+        for (int w = 0; w < workers; w++) {
+            for (int s = 0; s < accepted[w]; s++) {
+                visitor.visit(layouts[w], s * words, sample++);
+            }
+        }
+    }
+
+    /**
+     * Finds the salvo of size candidates with the highest score. Each worker
+     * searches the salvos starting with some of the candidates, sharing the best
+     * score found so far to prune with. Only branches that cannot reach the best
+     * score are pruned, and ties go to the salvo of the most likely candidates,
+     * so the result does not depend on the amount of workers unless time runs
+     * out
+     *
+     * @return Indexes of the chosen candidates
+     */
+    private int[] search(int size, long deadline) {
+        // The most likely squares maximise the expected hits, and are the salvo to
+        // beat
+        int[] best = new int[size];
+        for (int i = 0; i < size; i++) {
+            best[i] = i;
+        }
+        if (size == 0)
+            return best;
+        long bestScore = score(best, size);
+        AtomicLong sharedBest = new AtomicLong(bestScore);
+        // Set by the first search that runs out of time, so no worker starts
+        // another one
+        AtomicBoolean timedOut = new AtomicBoolean();
+
+        int firsts = candidateCount - size + 1;
+        Search[] searches = new Search[firsts];
+        runOnWorkers(w -> {
+            for (int first = w; first < firsts; first += workers) {
+                if (timedOut.get() || System.nanoTime() - deadline > 0) {
+                    timedOut.set(true);
+                    return;
+                }
+                searches[first] = new Search(size, sharedBest, timedOut, deadline);
+                searches[first].run(first);
+            }
+        });
+        for (Search search : searches) {
+            if (search != null && search.bestScore > bestScore) {
+                bestScore = search.bestScore;
+                best = search.best;
+            }
+        }
+        return best;
+    }
+
+    /** Depth first branch and bound over the salvos starting with one candidate */
+    private class Search {
+        final int size;
+        final AtomicLong sharedBest;
+        final AtomicBoolean sharedTimedOut;
+        final long deadline;
+        final int[] chosen;
+        // Samples hit by the first d chosen candidates, for each depth d
+        final long[][] hitSamples;
+        int[] best;
+        long bestScore = -1;
+        int nodes;
+        boolean timedOut;
+
+        Search(int size, AtomicLong sharedBest, AtomicBoolean sharedTimedOut, long deadline) {
+            this.size = size;
+            this.sharedBest = sharedBest;
+            this.sharedTimedOut = sharedTimedOut;
+            this.deadline = deadline;
+            this.chosen = new int[size];
+            this.hitSamples = new long[size + 1][bitWords];
+        }
+
+        void run(int first) {
+            chosen[0] = first;
+            or(0, first);
+            extend(1, first + 1, candidateHits[first]);
+        }
+
+        private void extend(int depth, int next, long hits) {
+            if (timedOut)
+                return;
+            if (++nodes % nodesPerCheck == 0 && (sharedTimedOut.get() || System.nanoTime() - deadline > 0)) {
+                timedOut = true;
+                sharedTimedOut.set(true);
+                return;
+            }
+            long anyHit = popCount(hitSamples[depth]);
+            if (depth == size) {
+                long score = hits + anyHit;
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = chosen.clone();
+                    sharedBest.accumulateAndGet(score, Math::max);
+                }
+                return;
+            }
+            int left = size - depth;
+            for (int j = next; j <= candidateCount - left; j++) {
+                // The candidates are sorted, so the next ones hit at most this often
+                long bestHits = hits + hitPrefix[j + left] - hitPrefix[j];
+                long bound = bestHits + Math.min(samples, anyHit + hitPrefix[j + left] - hitPrefix[j]);
+                if (bound < sharedBest.get() || bound < bestScore)
+                    return;
+                chosen[depth] = j;
+                or(depth, j);
+                extend(depth + 1, j + 1, hits + candidateHits[j]);
+            }
+        }
+
+        /** Sets hitSamples[depth + 1] to hitSamples[depth] or the samples of j */
+        private void or(int depth, int j) {
+            long[] from = hitSamples[depth];
+            long[] to = hitSamples[depth + 1];
+            for (int i = 0; i < bitWords; i++) {
+                to[i] = from[i] | sampleBits[j * bitWords + i];
+            }
+        }
+    }
+
+    private static long popCount(long[] bits) {
+        long count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @param salvo Indexes of candidates
+     * @return Hits of the salvo summed over the samples, plus the amount of
+     *         samples it hits at all
+     */
+    private long score(int[] salvo, int size) {
+        long hits = 0;
+        long[] any = new long[bitWords];
+        for (int i = 0; i < size; i++) {
+            hits += candidateHits[salvo[i]];
+            for (int k = 0; k < bitWords; k++) {
+                any[k] |= sampleBits[salvo[i] * bitWords + k];
+            }
+        }
+        return hits + popCount(any);
+    }
+
+    /**
+     * Scores any salvo against the samples of the latest plan, like the search
+     * does
+     *
+     * @param salvo Squares (x * height + y)
+     */
+    long scoreSquares(int[] salvo) {
+        long[] hits = new long[1];
+        long[] any = new long[bitWords];
+        forEachLayout((layout, offset, sample) -> {
+            for (int square : salvo) {
+                if ((layout[offset + (square >>> 6)] & (1L << square)) != 0) {
+                    hits[0]++;
+                    any[sample >>> 6] |= 1L << sample;
+                }
+            }
+        });
+        return hits[0] + popCount(any);
+    }
+
+    /** Takes the squares the fallback strategy finds hottest, when no samples were found */
+    private long[] fallbackSalvo(GameBoard enemyBoard, int shots) {
+        // Brings the fallback up to date with the board
+        fallback.nextShot(enemyBoard);
+        int size = width * height;
+        long[] result = new long[shots];
+        boolean[] taken = new boolean[size];
+        int found = 0;
+        for (; found < shots; found++) {
+            int best = -1;
+            for (int square = 0; square < size; square++) {
+                if (!tracker.isUnknown(square) || taken[square])
+                    continue;
+                if (best < 0 || fallback.getHeat(square / height, square % height) > fallback.getHeat(best / height,
+                        best % height))
+                    best = square;
+            }
+            if (best < 0)
+                break;
+            taken[best] = true;
+            result[found] = ShootingStrategy.shot(best / height, best % height);
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    private interface WorkerTask {
+        void run(int worker);
+    }
+
+    /** Runs the task once for each worker, on the pool if there is one */
+    private void runOnWorkers(WorkerTask task) throws IllegalStateException {
+        if (pool == null) {
+            task.run(0);
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            int worker = w;
+            tasks.add(() -> {
+                task.run(worker);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> worker : pool.invokeAll(tasks)) {
+                worker.get();
+            }
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Salvo planning failed", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Salvo planning was interrupted", ex);
+        }
+    }
+
+    /** @return Amount of layouts sampled for the latest salvo */
+    public int getSamples() {
+        return samples;
+    }
+
+    /** @return Amount of candidates considered for the latest salvo */
+    int getCandidateCount() {
+        return candidateCount;
+    }
+
+    /** @return Square of candidate j in the latest salvo */
+    int getCandidate(int j) {
+        return candidates[j];
+    }
+
+    /** Stops the worker threads */
+    @Override
+    public void close() {
+        if (pool != null)
+            pool.shutdownNow();
+    }
+}
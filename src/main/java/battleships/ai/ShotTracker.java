@@ -0,0 +1,232 @@
+package battleships.ai;
+
+import java.util.Arrays;
+import java.util.List;
+
+import battleships.models.Battleship;
+import battleships.models.Game;
+import battleships.models.GameBoard;
+import battleships.models.PlacementIndex;
+
+/**
+ * What a computer opponent knows about the enemy board: which squares are
+ * missed, hit or part of a sunk ship, which hits are not known to belong to a
+ * sunk ship, and how many ships of each length are afloat. The knowledge is
+ * read from the shot log of the board, so it can be brought up to date after any
+ * number of shots.
+ *
+ * Subclasses can override blocking() and sinking() to update their own state as
+ * the knowledge changes
+ */
+class ShotTracker {
+    static final byte unknown = 0;
+    static final byte miss = 1;
+    static final byte hit = 2;
+    static final byte sunk = 3;
+
+    private int width;
+    private int height;
+
+    // Distinct ship lengths of the fleet, and how many ships of each are afloat
+    private int[] lengths = new int[0];
+    private int[] afloat = new int[0];
+    private PlacementIndex[] placements = new PlacementIndex[0];
+
+    // State of each square (x * height + y)
+    private byte[] squares = new byte[0];
+    // Squares that are missed or sunk, one bit per square
+    private long[] blocked = new long[0];
+
+    // Hits not known to belong to a sunk ship
+    private int[] openHits = new int[0];
+    private int openHitCount;
+
+    // Number of shots in the shot log of the enemy board that are processed
+    private int shotsSeen;
+
+    /**
+     * Forgets everything, before a new game
+     *
+     * @throws IllegalArgumentException When the fleet of the game is not known
+     */
+    void reset(Game game) throws IllegalArgumentException {
+        List<Battleship> fleet = game.getBattleships();
+        if (fleet == null)
+            throw new IllegalArgumentException("The fleet of the game is not known");
+        width = game.getBoardWidth();
+        height = game.getBoardHeight();
+        int size = width * height;
+        if (squares.length != size) {
+            squares = new byte[size];
+            openHits = new int[size];
+            blocked = new long[(size + 63) >>> 6];
+        }
+        Arrays.fill(squares, unknown);
+        Arrays.fill(blocked, 0);
+        openHitCount = 0;
+        shotsSeen = 0;
+
+        lengths = fleet.stream().mapToInt(Battleship::getLength).distinct().sorted().toArray();
+        afloat = new int[lengths.length];
+        for (Battleship ship : fleet) {
+            afloat[indexOf(ship.getLength())]++;
+        }
+        placements = new PlacementIndex[lengths.length];
+        for (int i = 0; i < lengths.length; i++) {
+            placements[i] = PlacementIndex.of(width, height, lengths[i]);
+        }
+    }
+
+    /** Processes the shots on the board since the previous call */
+    void catchUp(GameBoard board) {
+        int shots = board.getShotCount();
+        for (; shotsSeen < shots; shotsSeen++) {
+            // Trackers only follow boards small enough to list every square
+            int square = (int) board.getShotSquare(shotsSeen);
+            int x = square / height;
+            int y = square % height;
+            if (!board.containsShip(x, y)) {
+                block(square, miss);
+                continue;
+            }
+            squares[square] = hit;
+            openHits[openHitCount++] = square;
+            // The board only knows which ship the latest shot sunk
+            Battleship sunkShip = shotsSeen == shots - 1 ? board.getLastSunkShip() : null;
+            if (sunkShip != null)
+                sink(x, y, sunkShip.getLength());
+        }
+    }
+
+    /**
+     * Removes the ship from the fleet and blocks its squares. The ship is assumed
+     * to be the open hits in a line of its length through (x, y)
+     */
+    private void sink(int x, int y, int length) {
+        int i = indexOf(length);
+        if (i < 0 || afloat[i] == 0)
+            return;
+        afloat[i]--;
+        sinking(i);
+        int start = findSunkShip(x, y, length, true);
+        boolean alongX = start >= 0;
+        if (!alongX)
+            start = findSunkShip(x, y, length, false);
+        if (start < 0)
+            return;
+        int step = alongX ? height : 1;
+        for (int j = 0, square = start; j < length; j++, square += step) {
+            block(square, sunk);
+            removeOpenHit(square);
+        }
+    }
+
+    /**
+     * @return First square of a line of open hits of length through (x, y), or -1
+     *         if there is none
+     */
+    private int findSunkShip(int x, int y, int length, boolean alongX) {
+        int position = alongX ? x : y;
+        int limit = alongX ? width : height;
+        int step = alongX ? height : 1;
+        for (int start = Math.max(0, position - length + 1); start <= position && start + length <= limit; start++) {
+            int first = alongX ? start * height + y : x * height + start;
+            boolean allHits = true;
+            for (int j = 0; j < length && allHits; j++) {
+                allHits = squares[first + j * step] == hit;
+            }
+            if (allHits)
+                return first;
+        }
+        return -1;
+    }
+
+    private void removeOpenHit(int square) {
+        for (int i = 0; i < openHitCount; i++) {
+            if (openHits[i] == square) {
+                openHits[i] = openHits[--openHitCount];
+                return;
+            }
+        }
+    }
+
+    private void block(int square, byte state) {
+        blocking(square);
+        squares[square] = state;
+        blocked[square >>> 6] |= 1L << square;
+    }
+
+    /**
+     * Called before a square is marked as a miss or part of a sunk ship, so
+     * isBlocked() and isOpen() do not see it yet
+     */
+    protected void blocking(int square) {
+    }
+
+    /**
+     * Called when a ship of lengths[i] is sunk, after it is removed from afloat
+     * and before its squares are blocked
+     */
+    protected void sinking(int i) {
+    }
+
+    /** @return Whether no ship afloat can cover the square */
+    boolean isBlocked(int square) {
+        return squares[square] == miss || squares[square] == sunk;
+    }
+
+    /**
+     * @param start First square of a placement of a ship of lengths[i]
+     * @return Whether a ship afloat of lengths[i] could be placed there
+     */
+    boolean isOpen(int i, int start, boolean alongX) {
+        return placements[i].isFree(blocked, start, alongX);
+    }
+
+    /** @return Blocked squares, one bit per square. Must not be modified */
+    long[] getBlocked() {
+        return blocked;
+    }
+
+    boolean isUnknown(int square) {
+        return squares[square] == unknown;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /** @return Amount of distinct ship lengths in the fleet */
+    int getLengthCount() {
+        return lengths.length;
+    }
+
+    int getLength(int i) {
+        return lengths[i];
+    }
+
+    /** @return Amount of ships of lengths[i] afloat */
+    int getAfloat(int i) {
+        return afloat[i];
+    }
+
+    int getOpenHitCount() {
+        return openHitCount;
+    }
+
+    int getOpenHit(int i) {
+        return openHits[i];
+    }
+
+    private int indexOf(int length) {
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] == length)
+                return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,86 @@
+package battleships.ai;
+
+import java.util.Arrays;
+
+/**
+ * Bounded cache of long values keyed by 64-bit hashes, such as the Zobrist
+ * hashes of GameBoard. Each key has one slot, picked by its low bits, and a new
+ * entry replaces whatever was in its slot, so the table never grows and never
+ * needs to evict. The whole key is stored, so a lookup only misses an entry
+ * that was replaced, and only returns a wrong value if two states have the same
+ * 64-bit hash.
+ *
+ * Not thread safe, use one table per thread or strategy
+ */
+public class TranspositionTable {
+    private final long[] keys;
+    private final long[] values;
+    // One bit per slot, set when the slot holds an entry. Key 0 is a valid key,
+    // the hash of an empty board
+    private final long[] used;
+    private final int mask;
+    private int size;
+
+    /**
+     * @param capacity Maximum amount of entries, rounded up to a power of 2
+     */
+    public TranspositionTable(int capacity) throws IllegalArgumentException {
+        if (capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        int slots = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        keys = new long[slots];
+        values = new long[slots];
+        used = new long[(slots + 63) >>> 6];
+        mask = slots - 1;
+    }
+
+    /**
+     * @param missing Value to return when the key is not in the table
+     * @return The value stored for the key, or missing
+     */
+    public long get(long key, long missing) {
+        int slot = slot(key);
+        return isUsed(slot) && keys[slot] == key ? values[slot] : missing;
+    }
+
+    public boolean contains(long key) {
+        int slot = slot(key);
+        return isUsed(slot) && keys[slot] == key;
+    }
+
+    /** Stores the value for the key, replacing the entry in its slot if any */
+    public void put(long key, long value) {
+        int slot = slot(key);
+        if (!isUsed(slot)) {
+            used[slot >>> 6] |= 1L << slot;
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    public void clear() {
+        Arrays.fill(used, 0);
+        size = 0;
+    }
+
+    /** @return Amount of entries in the table */
+    public int size() {
+        return size;
+    }
+
+    /** @return Maximum amount of entries in the table */
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    private int slot(long key) {
+        // Zobrist hashes are already mixed, folding in the high bits only guards
+        // against keys that vary in them alone
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private boolean isUsed(int slot) {
+        return (used[slot >>> 6] & (1L << slot)) != 0;
+    }
+}
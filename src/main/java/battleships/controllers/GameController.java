@@ -3,11 +3,15 @@ package battleships.controllers;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 
+import java.util.Arrays;
+
+import battleships.models.BoardListener;
 import battleships.models.GameBoard;
 import battleships.models.GameUtils;
 import battleships.models.Game;
-import battleships.models.Position;
-import battleships.models.filemanagement.FileHandler;
+import battleships.App;
+import battleships.models.filemanagement.AsyncFileHandler;
+import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
@@ -15,9 +19,23 @@ import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.Border;
+import javafx.scene.layout.BorderStroke;
+import javafx.scene.layout.BorderStrokeStyle;
+import javafx.scene.layout.BorderWidths;
 import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 
+/**
+ * Shows one board at a time on the tiles. The tiles are redrawn square by square
+ * as the board tells which squares change, and only when the state shown on the
+ * tile changes, so a shot costs the same on any board size
+ */
 public class GameController {
 
     @FXML
@@ -32,27 +50,69 @@ public class GameController {
     @FXML
     private Button randomizeBtn, submitBtn, endTurnBtn;
 
-    private FileHandler fileHandler;
+    private AsyncFileHandler fileHandler;
 
     private String hitColor, missColor;
 
+    // States a tile can show, indexes into backgrounds
+    private static final byte unknownState = -1;
+    private static final byte emptyState = 0;
+    private static final byte shipState = 1;
+    private static final byte missState = 2;
+    private static final byte hitState = 3;
+    // Made once and shared by the tiles, instead of a style string per tile
+    private final Background[] backgrounds;
+    private final Border tileBorder = new Border(
+            new BorderStroke(Color.BLACK, BorderStrokeStyle.SOLID, null, new BorderWidths(1)));
+
     private Game game;
 
+    // Board shown on the tiles, and the state each tile shows, x * height + y
+    private GameBoard shownBoard;
+    private byte[] tileStates = new byte[0];
+
+    private final BoardListener boardListener = new BoardListener() {
+        @Override
+        public void squareChanged(GameBoard board, int x, int y) {
+            if (board == shownBoard)
+                renderTile(x, y);
+        }
+
+        @Override
+        public void boardChanged(GameBoard board) {
+            if (board == shownBoard)
+                renderBoard(board);
+        }
+    };
+
     public GameController() {
-        fileHandler = new FileHandler();
-        game = new Game(GameUtils.boardWidth, GameUtils.boardHeight);
+        fileHandler = App.getFileHandler();
+        game = new Game(GameUtils.DEFAULT_RULES);
 
         hitColor = "green";
         missColor = "red";
+        backgrounds = new Background[4];
+        backgrounds[emptyState] = background("#f0f0f5");
+        backgrounds[shipState] = background("#333399");
+        backgrounds[missState] = background(missColor);
+        backgrounds[hitState] = background(hitColor);
+    }
+
+    private static Background background(String color) {
+        return new Background(new BackgroundFill(Color.web(color), null, null));
     }
 
     @FXML
     public void initialize() {
         createBoard();
+        game.getPlayer1().getFriendlyBoard().addListener(boardListener);
+        game.getPlayer2().getFriendlyBoard().addListener(boardListener);
         nameField.setText(game.getCurrentPlayer().getName());
     }
 
     public void loadGame() {
+        game.getPlayer1().getFriendlyBoard().removeListener(boardListener);
+        game.getPlayer2().getFriendlyBoard().removeListener(boardListener);
         try {
             game = fileHandler.readGameState(GameUtils.saveGameFileName);
         } catch (FileNotFoundException e) {
@@ -87,23 +147,22 @@ public class GameController {
 
     private void setUpViewForShootingPart() {
         randomizeBtn.setVisible(false);
-        hitColorPane.setStyle("-fx-background-color: " + hitColor);
-        missColorPane.setStyle("-fx-background-color: " + missColor);
+        hitColorPane.setBackground(backgrounds[hitState]);
+        missColorPane.setBackground(backgrounds[missState]);
         hitLabel.setText("= Ship hit");
         missLabel.setText("= Miss");
         nameField.setDisable(true);
         submitBtn.setVisible(false);
         endTurnBtn.setVisible(true);
 
-        // All the tiles can call fireShot(String) and pass in its coordinates in the
-        // function call
-        for (int x = 0; x < game.getBoardWidth(); x++) {
-            for (int y = 0; y < game.getBoardHeight(); y++) {
-                Node tile = tiles.getChildren().get(x * game.getBoardWidth() + y);
-                final int newX = x;
-                final int newY = y;
-                tile.setOnMouseClicked(e -> fireShot(String.format("%s%s", newX, newY)));
-            }
+        // All the tiles share one handler, which fires at the coordinates stored on
+        // the clicked tile by createBoard()
+        EventHandler<MouseEvent> onTileClicked = e -> {
+            int[] square = (int[]) ((Node) e.getSource()).getUserData();
+            fireShot(square[0], square[1]);
+        };
+        for (Node tile : tiles.getChildren()) {
+            tile.setOnMouseClicked(onTileClicked);
         }
         saveGame();
         updateShootingView();
@@ -126,30 +185,37 @@ public class GameController {
     private void saveGame() {
         try {
             fileHandler.writeGameState(GameUtils.saveGameFileName, game);
-        } catch (FileNotFoundException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+        } catch (IllegalStateException ex) {
+            // An earlier save failed on the writer thread
+            feedbackLabel.setText(ex.getMessage());
         }
     }
 
-    public void fireShot(String pos) {
+    public void fireShot(int x, int y) {
         feedbackLabel.setText("");
         boolean isGameOver;
         try {
-            isGameOver = game.fireShot(Character.getNumericValue(pos.charAt(0)),
-                    Character.getNumericValue(pos.charAt(1)));
+            isGameOver = game.fireShot(x, y);
         } catch (IllegalArgumentException | IllegalStateException ex) {
             feedbackLabel.setText(ex.getMessage());
             return;
         }
+        // The tile of the shot is redrawn by boardListener
         saveGame();
-        renderBoard(game.getCurrentPlayer().getEnemyBoard());
         shotsRemainingLabel.setText("Remaining shots: " + game.getCurrentPlayer().getShotsLeft());
 
         if (isGameOver) {
             try {
-                gameEnded();
+                // The delete is done before the view changes, so a failure is not lost
                 fileHandler.deleteSave(GameUtils.saveGameFileName);
+                fileHandler.flush();
+            } catch (IOException | IllegalStateException e) {
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                gameEnded();
             } catch (IOException e) {
                 // TODO Auto-generated catch block
                 e.printStackTrace();
@@ -171,8 +237,11 @@ public class GameController {
     }
 
     public void randomizePlacement() {
+        GameBoard board = game.getCurrentPlayer().getFriendlyBoard();
+        // Once the board is shown, boardListener redraws the squares that change
+        if (board != shownBoard)
+            renderBoard(board);
         game.randomizeCurrentBoard();
-        renderBoard(game.getCurrentPlayer().getFriendlyBoard());
     }
 
     private void createBoard() {
@@ -186,31 +255,42 @@ public class GameController {
                 tile.setTranslateY(y * preferredHeight);
                 tile.setPrefWidth(preferredWidth);
                 tile.setPrefHeight(preferredHeight);
-                tile.setUserData(x + y);
+                tile.setBorder(tileBorder);
+                tile.setUserData(new int[] { x, y });
                 tiles.getChildren().add(tile);
             }
         }
+        shownBoard = null;
+        tileStates = new byte[game.getBoardWidth() * game.getBoardHeight()];
+        Arrays.fill(tileStates, unknownState);
     }
 
+    /**
+     * Shows board on the tiles. Only tiles showing another state than before
+     * are changed, so showing the same board again is cheap
+     */
     private void renderBoard(GameBoard board) {
-        String color;
-        Node tile;
+        shownBoard = board;
         for (int x = 0; x < game.getBoardWidth(); x++) {
             for (int y = 0; y < game.getBoardHeight(); y++) {
-                tile = tiles.getChildren().get(x * game.getBoardWidth() + y);
-                color = "#f0f0f5";
-                Position square = board.getSquare(x, y);
-                if (square.getContainsShip() && game.getIsPlacementPhase()) {
-                    color = "#333399";
-                } else if (square.getIsHit() && !game.getIsPlacementPhase()) {
-                    color = missColor;
-                    if (square.getContainsShip()) {
-                        color = hitColor;
-                    }
-                }
-                tile.setStyle(String.format("-fx-background-color: %s; -fx-border-color:#000000; -fx-border-width:1px;",
-                        color));
+                renderTile(x, y);
             }
         }
     }
+
+    private void renderTile(int x, int y) {
+        byte state = emptyState;
+        boolean containsShip = shownBoard.containsShip(x, y);
+        if (game.getIsPlacementPhase()) {
+            if (containsShip)
+                state = shipState;
+        } else if (shownBoard.isHit(x, y)) {
+            state = containsShip ? hitState : missState;
+        }
+        int i = x * game.getBoardHeight() + y;
+        if (tileStates[i] != state) {
+            tileStates[i] = state;
+            ((Region) tiles.getChildren().get(i)).setBackground(backgrounds[state]);
+        }
+    }
 }
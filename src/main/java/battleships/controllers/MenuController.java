@@ -3,7 +3,8 @@ package battleships.controllers;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 
-import battleships.models.filemanagement.FileHandler;
+import battleships.App;
+import battleships.models.filemanagement.IFileHandler;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -20,7 +21,7 @@ public class MenuController {
 
     @FXML
     public void initialize() {
-        FileHandler fileHandler = new FileHandler();
+        IFileHandler fileHandler = App.getFileHandler();
         try {
             loadBtn.setDisable(!fileHandler.gameIsSaved("savedgame"));
         } catch (FileNotFoundException e) {
@@ -0,0 +1,15 @@
+package battleships.models;
+
+/**
+ * Notified by a GameBoard when its squares change, so a view only has to redraw
+ * the squares that changed. Called on the thread changing the board, after the
+ * change
+ */
+public interface BoardListener {
+
+    /** Square (x, y) was hit or got a ship */
+    void squareChanged(GameBoard board, int x, int y);
+
+    /** Any square may have changed, after emptyBoard() or loadMasks() */
+    void boardChanged(GameBoard board);
+}
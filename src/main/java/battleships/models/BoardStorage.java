@@ -0,0 +1,45 @@
+package battleships.models;
+
+/**
+ * One bit per square of a board, square x * height + y, grouped in 64-bit words
+ * like a long array. Boards keep their ships and hits in two of these, either
+ * dense or sparse, see GameBoard
+ */
+interface BoardStorage {
+
+    /** Receives the words of a storage that have any bit set */
+    interface WordVisitor {
+        void visit(long word, long bits);
+    }
+
+    /** @return Word number word, 0 if no bit of it was set */
+    long getWord(long word);
+
+    /** Sets the bits in word number word */
+    void orWord(long word, long bits);
+
+    /** Visits every word with any bit set, in no particular order */
+    void forEachWord(WordVisitor visitor);
+
+    /** Clears every bit */
+    void clear();
+
+    /** @return A storage with the same bits that shares no state with this one */
+    BoardStorage copy();
+
+    /** @return Whether other has the same bits, dense or sparse */
+    default boolean sameBits(BoardStorage other) {
+        boolean[] same = { true };
+        forEachWord((word, bits) -> same[0] &= other.getWord(word) == bits);
+        other.forEachWord((word, bits) -> same[0] &= getWord(word) == bits);
+        return same[0];
+    }
+
+    default boolean get(long square) {
+        return (getWord(square >>> 6) & (1L << square)) != 0;
+    }
+
+    default void set(long square) {
+        orWord(square >>> 6, 1L << square);
+    }
+}
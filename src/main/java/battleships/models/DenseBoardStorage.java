@@ -0,0 +1,55 @@
+package battleships.models;
+
+import java.util.Arrays;
+
+/** Board storage backed by a long array holding every word */
+final class DenseBoardStorage implements BoardStorage {
+    private final long[] words;
+
+    /** @param words Amount of words on the board */
+    DenseBoardStorage(int words) {
+        this.words = new long[words];
+    }
+
+    private DenseBoardStorage(long[] words) {
+        this.words = words;
+    }
+
+    @Override
+    public long getWord(long word) {
+        return words[(int) word];
+    }
+
+    @Override
+    public void orWord(long word, long bits) {
+        words[(int) word] |= bits;
+    }
+
+    @Override
+    public boolean get(long square) {
+        return (words[(int) (square >>> 6)] & (1L << square)) != 0;
+    }
+
+    @Override
+    public void set(long square) {
+        words[(int) (square >>> 6)] |= 1L << square;
+    }
+
+    @Override
+    public void forEachWord(WordVisitor visitor) {
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] != 0)
+                visitor.visit(i, words[i]);
+        }
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    @Override
+    public BoardStorage copy() {
+        return new DenseBoardStorage(words.clone());
+    }
+}
@@ -1,7 +1,12 @@
 package battleships.models;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 public class Game {
 
@@ -9,6 +14,7 @@ public class Game {
     private final Player player2;
     private Player currentPlayer;
 
+    private final GameRules rules;
     private final int boardWidth;
     private final int boardHeight;
 
@@ -16,37 +22,69 @@ public class Game {
 
     private List<Battleship> battleships;
 
+    // Which player fired each shot through this game, two bits per shot: 1 for
+    // player 1, 2 for player 2 and 0 for unknown. Shot i is the shot fired when
+    // there were i shots on the two boards, stored at i - firstShot
+    private long[] shooters = new long[1];
+    private int firstShot;
+
+    /** Starts a game with the default rules on a board of the given size */
     public Game(int boardWidth, int boardHeight) throws IllegalArgumentException {
+        this(GameUtils.DEFAULT_RULES.withBoardSize(boardWidth, boardHeight));
+    }
+
+    public Game(GameRules rules) {
+        this.rules = rules;
+        this.boardWidth = rules.getBoardWidth();
+        this.boardHeight = rules.getBoardHeight();
         GameBoard gameBoard1 = new GameBoard(boardWidth, boardHeight);
         GameBoard gameBoard2 = new GameBoard(boardWidth, boardHeight);
-        this.boardWidth = boardWidth;
-        this.boardHeight = boardHeight;
-        player1 = new Player("Player 1", gameBoard1, gameBoard2);
-        player2 = new Player("Player 2", gameBoard2, gameBoard1);
+        player1 = new Player("Player 1", gameBoard1, gameBoard2, rules.getShotsPerTurn());
+        player2 = new Player("Player 2", gameBoard2, gameBoard1, rules.getShotsPerTurn());
         currentPlayer = player1;
 
         isPlacementPhase = true;
 
-        battleships = new ArrayList<>();
-        battleships.add(new Battleship(4));
-        battleships.add(new Battleship(3));
-        battleships.add(new Battleship(2));
+        battleships = rules.createFleet();
     }
 
     // Constructor used to initiate game after reading from file
     public Game(Player player1, Player player2, Player currentPlayer, int boardWidth, int boardHeight) {
+        this(player1, player2, currentPlayer, GameUtils.DEFAULT_RULES.withBoardSize(boardWidth, boardHeight));
+    }
+
+    /**
+     * Constructor used to initiate game after reading from file, or to continue
+     * a game. The fleet is taken from the rules, so it is known even though the
+     * ships on the boards are not tracked one by one
+     */
+    public Game(Player player1, Player player2, Player currentPlayer, GameRules rules) {
         this.player1 = player1;
         this.player2 = player2;
         this.currentPlayer = currentPlayer;
-        this.boardWidth = boardWidth;
-        this.boardHeight = boardHeight;
+        this.rules = rules;
+        this.boardWidth = rules.getBoardWidth();
+        this.boardHeight = rules.getBoardHeight();
         this.isPlacementPhase = false;
+        this.battleships = rules.createFleet();
+        this.firstShot = getShotCount();
     }
 
     public void randomizeCurrentBoard() throws IllegalStateException {
+        randomizeCurrentBoard(ThreadLocalRandom.current());
+    }
+
+    /**
+     * Same as randomizeCurrentBoard(), with the randomness taken from random so
+     * the placement can be reproduced from a seed
+     *
+     * @param random Source of randomness
+     */
+    public void randomizeCurrentBoard(RandomGenerator random) throws IllegalStateException {
         if (!isPlacementPhase)
             throw new IllegalStateException("Cannot place battleships after placement phase");
-        currentPlayer.getFriendlyBoard().placeAllBattleships(battleships);
+        ShipPlacer.forThread(boardWidth, boardHeight, rules.shipsMayTouch()).placeAll(currentPlayer.getFriendlyBoard(),
+                battleships, random);
     }
 
     public void switchPlayer() {
@@ -84,23 +122,154 @@ public class Game {
         if (isPlacementPhase) {
             throw new IllegalStateException("Cannot shoot enemy board during placement phase:/");
         }
+        int shot = getShotCount();
         currentPlayer.fireShot(x, y);
+        recordShooter(shot);
+        return isGameOver();
+    }
+
+    /**
+     * Lets current player fire shot without exceptions for invalid shots. Check
+     * isGameOver() after a HIT or SUNK result to see if the game is over
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return Result of the shot, see Player.resolveShot()
+     * @throws IllegalStateException When called during placement phase
+     */
+    public ShotResult resolveShot(int x, int y) throws IllegalStateException {
+        if (isPlacementPhase) {
+            throw new IllegalStateException("Cannot shoot enemy board during placement phase:/");
+        }
+        int shot = getShotCount();
+        ShotResult result = currentPlayer.resolveShot(x, y);
+        if (result.isFired())
+            recordShooter(shot);
+        return result;
+    }
+
+    /** @return Amount of shots on the boards of both players */
+    public int getShotCount() {
+        return player1.getFriendlyBoard().getShotCount() + player2.getFriendlyBoard().getShotCount();
+    }
+
+    /**
+     * Tells the order shots were fired in across the two boards, which the shot
+     * logs of the boards do not
+     *
+     * @param shot Amount of shots on both boards when the shot was fired, see
+     *             getShotCount()
+     * @return 1 or 2 for the player that fired the shot, or 0 if it was not fired
+     *         through fireShot() or resolveShot() of this game or a copy of it
+     */
+    public int getShooter(int shot) {
+        int i = shot - firstShot;
+        if (i < 0 || (i >>> 5) >= shooters.length)
+            return 0;
+        return (int) (shooters[i >>> 5] >>> ((i & 31) * 2)) & 3;
+    }
+
+    private void recordShooter(int shot) {
+        int i = shot - firstShot;
+        if (i < 0)
+            return;
+        if ((i >>> 5) >= shooters.length)
+            shooters = Arrays.copyOf(shooters, Math.max(shooters.length * 2, (i >>> 5) + 1));
+        int shift = (i & 31) * 2;
+        long code = currentPlayer == player1 ? 1 : 2;
+        shooters[i >>> 5] = shooters[i >>> 5] & ~(3L << shift) | code << shift;
+    }
+
+    /** @return Whether the current player has hit every ship on the enemy board */
+    public boolean isGameOver() {
         return currentPlayer.getEnemyBoard().isGameOver();
     }
 
+    /**
+     * Copies the game, so it can be read on another thread while this game is
+     * still being played
+     *
+     * @return A new game equal to this one, sharing no boards or players with it
+     */
+    public Game copy() {
+        return copy(player1.getFriendlyBoard().copy(), player2.getFriendlyBoard().copy());
+    }
+
+    /**
+     * Copies the game with forked boards, see GameBoard.fork(). The boards are
+     * copied in constant time, and share state with this game until it changes
+     *
+     * @return A new game equal to this one
+     */
+    public Game fork() {
+        return copy(player1.getFriendlyBoard().fork(), player2.getFriendlyBoard().fork());
+    }
+
+    /** @return Copy of the game with the given copies of the boards of player 1 and 2 */
+    private Game copy(GameBoard board1, GameBoard board2) {
+        Player player1Copy = new Player(player1.getName(), board1, board2, player1.getMaxShots());
+        player1Copy.setShots(player1.getShotsLeft());
+        Player player2Copy = new Player(player2.getName(), board2, board1, player2.getMaxShots());
+        player2Copy.setShots(player2.getShotsLeft());
+        Game copy = new Game(player1Copy, player2Copy, currentPlayer == player1 ? player1Copy : player2Copy,
+                rules);
+        copy.isPlacementPhase = isPlacementPhase;
+        // The boards of the copy track the same ship objects
+        copy.battleships = new ArrayList<>(battleships);
+        copy.shooters = shooters.clone();
+        copy.firstShot = firstShot;
+        return copy;
+    }
+
     public void endPlacementPhase() {
         isPlacementPhase = false;
     }
 
     public String serialize() {
-        String result;
-        result = String.format("%d;%d;\n", boardWidth, boardHeight);
-        result += String.format("%s;\n", player1.getFriendlyBoard().serialize());
-        result += String.format("%s;\n", player2.getFriendlyBoard().serialize());
+        StringBuilder result = new StringBuilder();
+        try {
+            serializeTo(result);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Writes the same text as serialize() to out. The boards are written square
+     * by square, so memory use does not depend on board size
+     *
+     * @param out Where to write the game, typically a buffered Writer
+     */
+    public void serializeTo(Appendable out) throws IOException {
+        Position.appendInt(out, boardWidth);
+        out.append(';');
+        Position.appendInt(out, boardHeight);
+        out.append(';');
+        // Only written when it is not the default, so saves of games with the
+        // default rules can still be read by older versions
+        if (rules.getShotsPerTurn() != GameUtils.DEFAULT_RULES.getShotsPerTurn()) {
+            Position.appendInt(out, rules.getShotsPerTurn());
+            out.append(';');
+        }
+        out.append('\n');
+        player1.getFriendlyBoard().serializeTo(out);
+        out.append(";\n");
+        player2.getFriendlyBoard().serializeTo(out);
+        out.append(";\n");
         boolean player1IsCurrentPlayer = currentPlayer == player1;
-        result += String.format("%s;%d;%s;%s;%d;%s;", player1.getName(), player1.getShotsLeft(), player1IsCurrentPlayer,
-                player2.getName(), player2.getShotsLeft(), !player1IsCurrentPlayer);
-        return result;
+        serializePlayerTo(out, player1, player1IsCurrentPlayer);
+        serializePlayerTo(out, player2, !player1IsCurrentPlayer);
+    }
+
+    private void serializePlayerTo(Appendable out, Player player, boolean isCurrentPlayer) throws IOException {
+        out.append(player.getName());
+        out.append(';');
+        Position.appendInt(out, player.getShotsLeft());
+        out.append(';');
+        out.append(isCurrentPlayer ? "true" : "false");
+        out.append(';');
     }
 
     @Override
@@ -112,8 +281,38 @@ public class Game {
 
         Game game = (Game) o;
 
-        return player1.valueEquals(game.player1) && player2.valueEquals(game.player2)
-                && currentPlayer.valueEquals(game.currentPlayer) && isPlacementPhase == game.isPlacementPhase;
+        // The players have the boards of each other, so comparing the current
+        // players by value again would only compare the same boards twice
+        return isPlacementPhase == game.isPlacementPhase
+                && (currentPlayer == player1) == (game.currentPlayer == game.player1)
+                && player1.valueEquals(game.player1) && player2.valueEquals(game.player2);
+    }
+
+    /**
+     * Consistent with equals(), in constant time, so game states can be
+     * deduplicated in hash maps. Changes as the game is played
+     */
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(getZobristHash());
+        result = 31 * result + player1.getName().hashCode();
+        result = 31 * result + player2.getName().hashCode();
+        return 31 * result + player1.getShotsLeft() * 7 + player2.getShotsLeft();
+    }
+
+    /**
+     * Combines the Zobrist hashes of the boards with whose turn it is, the shots
+     * left and the phase, in constant time. Player names are left out
+     *
+     * @return Zobrist hash of the state of the game
+     */
+    public long getZobristHash() {
+        long hash = player1.getFriendlyBoard().getZobristHash();
+        // Rotated so swapping the boards changes the hash
+        hash ^= Long.rotateLeft(player2.getFriendlyBoard().getZobristHash(), 32);
+        hash ^= (currentPlayer == player1 ? 0x5DEECE66DL : 0xB5297A4DL) * (currentPlayer.getShotsLeft() + 1);
+        hash ^= isPlacementPhase ? 0x9E3779B97F4A7C15L : 0;
+        return hash;
     }
 
     public Player getPlayer1() {
@@ -128,6 +327,10 @@ public class Game {
         return this.currentPlayer;
     }
 
+    public GameRules getRules() {
+        return this.rules;
+    }
+
     public int getBoardWidth() {
         return this.boardWidth;
     }
@@ -1,127 +1,230 @@
 package battleships.models;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * The game board that stores the squares in the board. Provides all logic
  * needed with the board. One GameBoard object per player
+ *
+ * The squares are stored as two bitmasks, one for ships and one for hits. Square
+ * (x, y) is bit number x * height + y. Position objects handed out by the board
+ * are views backed by these masks. Boards with more than maxDenseSquares squares
+ * keep sparse masks, where only the words with ship or hit squares take memory,
+ * so a board can be far bigger than the ones shown in the game
+ *
+ * fork() copies a board in constant time. The first fork moves the masks of the
+ * board to persistent storage, which the board and its forks share until they
+ * change it, see PersistentBoardStorage. The ship and shot arrays are shared the
+ * same way, and copied by the first board that changes them
+ *
+ * The board keeps count of ship squares that are not hit yet, so game over
+ * checks do not need to look at the squares. Ships placed with placeBattleShip()
+ * are also tracked one by one so the board knows when a shot sinks a ship
+ *
+ * Two Zobrist hashes are updated with every ship square and hit: one of the
+ * whole board, and one of what the opponent knows about it, the hits, which of
+ * them hit a ship and which shots sank a ship. Equal boards have equal hashes,
+ * whatever order they were set up in, and equals() compares the hashes first
+ *
+ * BoardListeners added with addListener() are told which squares change. They
+ * belong to this board, copies and forks start without listeners
  */
 public class GameBoard {
     // Minimum value of width/height of the board
-    private final int minDimension = 4;
+    static final int minDimension = 4;
+    // Boards with more squares than this use sparse masks by default
+    static final long maxDenseSquares = 1L << 22;
+    // Masks are addressed by int word numbers
+    private static final long maxSquares = (long) Integer.MAX_VALUE << 6;
 
-    private Position[][] squares;
+    private final int width;
+    private final int height;
+
+    private BoardStorage shipMask;
+    private BoardStorage hitMask;
+    private final boolean sparse;
+
+    // Number of squares containing a ship that are not hit yet
+    private int shipSquaresLeft;
+
+    // Ships placed with placeBattleShip(). Ship i covers ships[i].getLength() squares,
+    // starting at square shipStarts[i] with shipSteps[i] between each square
+    private Battleship[] ships;
+    private long[] shipStarts;
+    private int[] shipSteps;
+    private int[] shipHitsLeft;
+    private int shipCount;
+    private int shipsAfloat;
+    private Battleship lastSunkShip;
+
+    // Placement indexes by ship length, looked up the first time they are needed
+    private PlacementIndex[] placements = new PlacementIndex[0];
+
+    // Squares (x * height + y) that have been hit, in the order they were hit,
+    // in chunks of shotChunkSize squares. Only the first chunk grows, the rest
+    // are allocated full size, so a fork only copies the chunk it appends to
+    private static final int shotChunkBits = 9;
+    private static final int shotChunkSize = 1 << shotChunkBits;
+    private long[][] shotLog = new long[1][];
+    private int shotCount;
+
+    // Whether the ship arrays and the shot log are shared with a fork, and must
+    // be copied before they are changed
+    private boolean sharesArrays;
+    // Whether full chunks of the shot log may be shared with a fork. ownArrays()
+    // leaves them shared, so this stays set until the log is replaced
+    private boolean sharesShotChunks;
+
+    // Kinds of Zobrist keys for a square. A shot sinking a ship of length n uses
+    // kind sunkKind + n
+    private static final int shipKind = 0;
+    private static final int hitKind = 1;
+    private static final int sunkKind = 2;
+    // Xor of the keys of every ship and hit square, and of the ship squares only
+    private long zobristHash;
+    private long shipHash;
+    // Xor of the keys of every hit, the ship keys of hit ship squares and the
+    // sunk keys of shots that sank a ship
+    private long knownHash;
+
+    private BoardListener[] listeners = new BoardListener[0];
 
     /**
-     * 
+     *
      * @param playerName
      * @param width      Width of board in squares
      * @param height     Height of board in squares
      */
     public GameBoard(int width, int height) throws IllegalArgumentException {
-        this.evaluateDimensions(width, height);
-        this.generateSquares(width, height);
+        this(width, height, (long) width * height > maxDenseSquares);
     }
 
     /**
-     * Creates the squares by the initialising squares and filling up the squares
-     * array with the initialised squares
-     * 
      * @param width  Width of board in squares
      * @param height Height of board in squares
+     * @param sparse Whether to only store the words of the masks that have ship
+     *               or hit squares, instead of every word
      */
-    private void generateSquares(int width, int height) throws IllegalArgumentException {
+    public GameBoard(int width, int height, boolean sparse) throws IllegalArgumentException {
         this.evaluateDimensions(width, height);
-        this.squares = new Position[width][height];
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                squares[x][y] = new Position(x, y);
-            }
-        }
+        this.width = width;
+        this.height = height;
+        this.sparse = sparse;
+        this.shipMask = createStorage();
+        this.hitMask = createStorage();
+        this.ships = new Battleship[4];
+        this.shipStarts = new long[4];
+        this.shipSteps = new int[4];
+        this.shipHitsLeft = new int[4];
+    }
+
+    /** Copies the masks of board, the rest is copied by copy() */
+    private GameBoard(GameBoard board) {
+        this.width = board.width;
+        this.height = board.height;
+        this.sparse = board.sparse;
+        this.shipMask = board.shipMask.copy();
+        this.hitMask = board.hitMask.copy();
+    }
+
+    private BoardStorage createStorage() {
+        return sparse ? new SparseBoardStorage() : new DenseBoardStorage(getMaskWords());
     }
 
     /**
      * Validates width and height
-     * 
+     *
      * @param width  Width of board in squares
      * @param height Height of board in squares
      * @throws IllegalArgumentException When width/height is smaller than minimum or
-     *                                  they are not equal
+     *                                  the board has too many squares to address
      */
     public void evaluateDimensions(int width, int height) throws IllegalArgumentException {
         if (width < minDimension || height < minDimension) {
             throw new IllegalArgumentException(
                     String.format("Width and height must be at least as big as minDimensions(%d) big", minDimension));
         }
-        if (width != height) {
-            throw new IllegalArgumentException("Board width and height must be equal");
+        if ((long) width * height > maxSquares) {
+            throw new IllegalArgumentException(
+                    String.format("Board can not have more than %d squares", maxSquares));
         }
     }
 
     /**
-     * Checks if game is over. Assumes the game is over and looks for contradiction
-     * 
+     * Checks if game is over in constant time, using the count of ship squares
+     * that are not hit yet
+     *
      * @return true/false based on if all squares containing a ship is hit
      */
     public boolean isGameOver() {
-        for (Position[] posArr : squares) {
-            for (Position pos : posArr) {
-                if (!pos.getIsHit() && pos.getContainsShip())
-                    return false;
-            }
-        }
-        return true;
+        return shipSquaresLeft == 0;
     }
 
     /**
-     * Validates coordinate, then registers hit on Position object in the coordinate
-     * 
+     * Validates coordinate, then registers hit on the square in the coordinate
+     *
      * @param x X coordinate on board
      * @param y Y coordinate on board
      */
     public void fireShot(int x, int y) throws IllegalArgumentException, IllegalStateException {
-        validateCoordinates(x, y);
-        squares[x][y].registerHit();
+        ShotResult result = resolveShot(x, y);
+        if (result == ShotResult.OUT_OF_BOUNDS)
+            validateCoordinates(x, y);
+        if (result == ShotResult.ALREADY_SHOT)
+            throw new IllegalStateException(String.format("Position is already hit at (%d, %d)", x, y));
+    }
+
+    /**
+     * Registers hit on the square in the coordinate if the shot is valid. Invalid
+     * shots are reported through the result instead of exceptions, so they
+     * allocate nothing. A fired shot is added to the shot log, which now and then
+     * allocates a new chunk, and copies a chunk after a fork
+     *
+     * @param x X coordinate on board
+     * @param y Y coordinate on board
+     * @return OUT_OF_BOUNDS or ALREADY_SHOT if the shot is invalid, otherwise
+     *         MISS, HIT or SUNK
+     */
+    public ShotResult resolveShot(int x, int y) {
+        if (x >= this.width || y >= this.height || x < 0 || y < 0)
+            return ShotResult.OUT_OF_BOUNDS;
+        long cell = cell(x, y);
+        if (hitMask.get(cell))
+            return ShotResult.ALREADY_SHOT;
+        if (markHit(x, y))
+            return ShotResult.SUNK;
+        return shipMask.get(cell) ? ShotResult.HIT : ShotResult.MISS;
     }
 
     /**
-     * First resets the board (the squares). Randomly places all battleships in a
-     * brute force manner.
-     * 
+     * First resets the board (the squares). Randomly places all battleships, each
+     * one uniformly among the placements that are still free
+     *
      * @param ships List of battleships to place
      */
     public void placeAllBattleships(List<Battleship> ships) throws IllegalArgumentException, IllegalStateException {
-        Random ran = new Random();
-        Boolean placeAlongX;
-        int xBound;
-        int yBound;
-        int xPos;
-        int yPos;
-
-        emptyBoard();
-        for (Battleship ship : ships) {
-            while (true) {
-                placeAlongX = true;
-                if (ran.nextInt(2) == 0) {
-                    placeAlongX = false;
-                }
-                // Determines max amount of start position in x and y based on if horizontal
-                // placing or not
-                xBound = placeAlongX ? squares.length - ship.getLength() + 1 : squares.length;
-                yBound = placeAlongX ? squares[0].length : squares[0].length - ship.getLength() + 1;
-
-                xPos = ran.nextInt(xBound);
-                yPos = ran.nextInt(yBound);
-                try {
-                    placeBattleShip(xPos, yPos, ship, placeAlongX);
-                    break;
-                } catch (IllegalArgumentException | IllegalStateException ex) {
+        placeAllBattleships(ships, ThreadLocalRandom.current());
+    }
 
-                }
-            }
-        }
+    /**
+     * Same as placeAllBattleships(List), with the randomness taken from random so
+     * placements can be reproduced from a seed
+     *
+     * @param ships  List of battleships to place
+     * @param random Source of randomness
+     * @throws IllegalArgumentException When the ships can never fit on the board
+     * @throws IllegalStateException    When the ships could not be placed within
+     *                                  a bounded amount of attempts
+     */
+    public void placeAllBattleships(List<Battleship> ships, RandomGenerator random)
+            throws IllegalArgumentException, IllegalStateException {
+        // The placer is not kept on the board, its buffers are as big as the board
+        ShipPlacer.forThread(width, height, true).placeAll(this, ships, random);
     }
 
     /***
@@ -130,7 +233,7 @@ public class GameBoard {
      * 1: Validates that square is not occupied andd coordinates are not out of
      * bounds
      * 2: Registeres battleship on the relevant tiles
-     * 
+     *
      * @param xPos        Start position on x-axis
      * @param yPos        Start position on y-axis
      * @param ship        Battleship to place. The length attribute in his class
@@ -141,84 +244,539 @@ public class GameBoard {
      */
     public void placeBattleShip(int xPos, int yPos, Battleship ship, boolean placeAlongX)
             throws IllegalArgumentException, IllegalStateException {
-        int itStart = placeAlongX ? xPos : yPos;
-        boolean allPositionsValidated = false;
-
-        int x = xPos;
-        int y = yPos;
-        for (int q = 0; q < 2; q++) {
-            for (int i = itStart; i < itStart + ship.getLength(); i++) {
-                if (placeAlongX) {
-                    x = i;
-                } else {
-                    y = i;
-                }
+        int length = ship.getLength();
+        PlacementIndex index = length > 0 ? getPlacementIndex(length) : null;
 
-                if (allPositionsValidated) {
-                    // 2
-                    squares[x][y].registerShip();
-                } else {
-                    // 1
-                    validateCoordinates(x, y);
-                    Position targetPos = squares[x][y];
-                    if (targetPos.getContainsShip()) {
-                        // Denne er kanskje illegalState
-                        throw new IllegalStateException(
-                                String.format("(%d, %d) is already occupied by another boat", x, y));
-                    }
+        // 1
+        if (index == null || !index.fits(xPos, yPos, placeAlongX)
+                || !isFree(index, cell(xPos, yPos), placeAlongX)) {
+            // Finds the first square that is out of bounds or occupied to report it
+            int dx = placeAlongX ? 1 : 0;
+            int dy = placeAlongX ? 0 : 1;
+            for (int i = 0; i < length; i++) {
+                int x = xPos + i * dx;
+                int y = yPos + i * dy;
+                validateCoordinates(x, y);
+                if (shipMask.get(cell(x, y))) {
+                    throw new IllegalStateException(
+                            String.format("(%d, %d) is already occupied by another boat", x, y));
                 }
             }
-            allPositionsValidated = true;
         }
+        // 2
+        int hitsLeft = 0;
+        if (index != null) {
+            long start = cell(xPos, yPos);
+            hitsLeft = length - index.countSet(hitMask, start, placeAlongX);
+            index.mark(shipMask, start, placeAlongX);
+            shipSquaresLeft += hitsLeft;
+            int step = placeAlongX ? height : 1;
+            for (int i = 0; i < length; i++) {
+                hashShip(start + (long) i * step);
+            }
+        }
+        trackShip(ship, cell(xPos, yPos), placeAlongX ? height : 1, hitsLeft);
+        for (int i = 0; i < length && listeners.length > 0; i++) {
+            squareChanged(placeAlongX ? xPos + i : xPos, placeAlongX ? yPos : yPos + i);
+        }
+    }
+
+    /** @return Placement index for ships of length on this board */
+    PlacementIndex getPlacementIndex(int length) {
+        if (length >= placements.length)
+            placements = Arrays.copyOf(placements, length + 1);
+        if (placements[length] == null)
+            placements[length] = PlacementIndex.of(width, height, length);
+        return placements[length];
+    }
+
+    private void trackShip(Battleship ship, long start, int step, int hitsLeft) {
+        ownArrays();
+        if (shipCount == ships.length) {
+            ships = Arrays.copyOf(ships, shipCount * 2);
+            shipStarts = Arrays.copyOf(shipStarts, shipCount * 2);
+            shipSteps = Arrays.copyOf(shipSteps, shipCount * 2);
+            shipHitsLeft = Arrays.copyOf(shipHitsLeft, shipCount * 2);
+        }
+        ships[shipCount] = ship;
+        shipStarts[shipCount] = start;
+        shipSteps[shipCount] = step;
+        shipHitsLeft[shipCount] = hitsLeft;
+        shipCount++;
+        if (hitsLeft > 0)
+            shipsAfloat++;
     }
 
+    /**
+     * Returns a view of the square in the coordinate. The view reads and writes
+     * through to this board
+     */
     public Position getSquare(int x, int y) throws IllegalArgumentException {
         validateCoordinates(x, y);
-        return this.squares[x][y];
+        return new Position(this, x, y);
+    }
+
+    public boolean isHit(int x, int y) throws IllegalArgumentException {
+        validateCoordinates(x, y);
+        return hitMask.get(cell(x, y));
+    }
+
+    public boolean containsShip(int x, int y) throws IllegalArgumentException {
+        validateCoordinates(x, y);
+        return shipMask.get(cell(x, y));
     }
 
     /**
-     * Throws Exception when x/y is out of bounds of the square 2d-array
-     * 
+     * Throws Exception when x/y is out of bounds of the board
+     *
      * @param x x coordinate in board
      * @param y y coordinate in board
      * @throws IllegalArgumentException
      */
     public void validateCoordinates(int x, int y) throws IllegalArgumentException {
-        if (x >= this.squares.length || y >= this.squares[0].length || x < 0 || y < 0)
+        if (x >= this.width || y >= this.height || x < 0 || y < 0)
             throw new IllegalArgumentException(
                     String.format("Coordinate arguments are out of bounds. (%d, %d) were received", x, y));
     }
 
-    /** Resets board back to scratch */
+    /** Resets board back to scratch without allocating, unless it was forked */
     public void emptyBoard() {
-        generateSquares(squares.length, squares[0].length);
+        shipMask.clear();
+        hitMask.clear();
+        // The shot log starts over from chunk 0, which a fork may still share
+        if (sharesShotChunks) {
+            shotLog = new long[1][];
+            sharesShotChunks = false;
+        }
+        shotCount = 0;
+        ownArrays();
+        Arrays.fill(ships, 0, shipCount, null);
+        shipSquaresLeft = 0;
+        shipCount = 0;
+        shipsAfloat = 0;
+        lastSunkShip = null;
+        zobristHash = 0;
+        shipHash = 0;
+        knownHash = 0;
+        boardChanged();
     }
 
+    /**
+     * Builds a 2d-array of views of all the squares. Prefer getSquare(), isHit()
+     * or containsShip() when only a few squares are needed, and on sparse boards
+     */
     public Position[][] getSquares() {
-        return this.squares;
+        Position[][] squares = new Position[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                squares[x][y] = new Position(this, x, y);
+            }
+        }
+        return squares;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    /** @return Whether the masks only store the words with ship or hit squares */
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * @return Copy of the ship mask. Bit x * height + y is set when (x, y)
+     *         contains a ship. Has every word, also on sparse boards
+     */
+    public long[] getShipMask() {
+        return toArray(shipMask);
+    }
+
+    /**
+     * @return Copy of the hit mask. Bit x * height + y is set when (x, y) is hit.
+     *         Has every word, also on sparse boards
+     */
+    public long[] getHitMask() {
+        return toArray(hitMask);
+    }
+
+    private long[] toArray(BoardStorage storage) {
+        long[] mask = new long[getMaskWords()];
+        storage.forEachWord((word, bits) -> mask[(int) word] = bits);
+        return mask;
+    }
+
+    /** @return Amount of long words in each of the ship and hit masks */
+    public int getMaskWords() {
+        return (int) (((long) width * height + 63) >>> 6);
+    }
+
+    /** @return Word i of the ship mask, without copying the mask */
+    public long getShipWord(int i) {
+        return shipMask.getWord(i);
+    }
+
+    /** @return Word i of the hit mask, without copying the mask */
+    public long getHitWord(int i) {
+        return hitMask.getWord(i);
+    }
+
+    /**
+     * Replaces the state of every square with the masks, laid out like
+     * getShipMask() and getHitMask(). Ships loaded this way count towards game
+     * over, but are not tracked as ships
+     *
+     * @param ships Ship mask
+     * @param hits  Hit mask
+     * @throws IllegalArgumentException When the masks do not match the board size
+     */
+    public void loadMasks(long[] ships, long[] hits) throws IllegalArgumentException {
+        int words = getMaskWords();
+        if (ships.length != words || hits.length != words)
+            throw new IllegalArgumentException(
+                    String.format("Masks must have %d words for a %dx%d board", words, width, height));
+        int usedBits = (int) ((long) width * height) & 63;
+        long unused = usedBits == 0 ? 0 : -1L << usedBits;
+        if (((ships[words - 1] | hits[words - 1]) & unused) != 0)
+            throw new IllegalArgumentException("Masks have bits set outside of the board");
+        emptyBoard();
+        for (int i = 0; i < words; i++) {
+            shipMask.orWord(i, ships[i]);
+            // Before the hits are set, so hashHit() adds the ship keys of hit ships
+            for (long word = ships[i]; word != 0; word &= word - 1) {
+                hashShip(i * 64L + Long.numberOfTrailingZeros(word));
+            }
+            hitMask.orWord(i, hits[i]);
+            shipSquaresLeft += Long.bitCount(ships[i] & ~hits[i]);
+            // The order of the hits is not known, so they are logged square by square
+            for (long word = hits[i]; word != 0; word &= word - 1) {
+                long cell = i * 64L + Long.numberOfTrailingZeros(word);
+                logShot(cell);
+                hashHit(cell);
+            }
+        }
+        boardChanged();
+    }
+
+    /**
+     * Copies the board, including its ships, shot log and sunk ship tracking. The
+     * copy shares nothing with this board that either of them changes, so it can
+     * be handed to another thread
+     *
+     * @return A new board equal to this one
+     */
+    public GameBoard copy() {
+        GameBoard copy = new GameBoard(this);
+        copy.shipSquaresLeft = shipSquaresLeft;
+        copy.zobristHash = zobristHash;
+        copy.shipHash = shipHash;
+        copy.knownHash = knownHash;
+        copy.ships = ships.clone();
+        copy.shipStarts = shipStarts.clone();
+        copy.shipSteps = shipSteps.clone();
+        copy.shipHitsLeft = shipHitsLeft.clone();
+        copy.shipCount = shipCount;
+        copy.shipsAfloat = shipsAfloat;
+        copy.lastSunkShip = lastSunkShip;
+        copy.shotLog = new long[shotLog.length][];
+        for (int i = 0; i < shotLog.length && shotLog[i] != null; i++) {
+            copy.shotLog[i] = shotLog[i].clone();
+        }
+        copy.shotCount = shotCount;
+        return copy;
+    }
+
+    /**
+     * Copies the board in constant time, for searches that try out many shots
+     * from the same board. The fork and this board share their state until one of
+     * them changes it, and then only copy what they change, so neither sees the
+     * changes of the other. Boards that share state must not be changed by
+     * several threads at once
+     *
+     * @return A new board equal to this one
+     */
+    public GameBoard fork() {
+        if (!(shipMask instanceof PersistentBoardStorage)) {
+            shipMask = PersistentBoardStorage.of(shipMask, getMaskWords());
+            hitMask = PersistentBoardStorage.of(hitMask, getMaskWords());
+        }
+        GameBoard fork = new GameBoard(this);
+        fork.shipSquaresLeft = shipSquaresLeft;
+        fork.zobristHash = zobristHash;
+        fork.shipHash = shipHash;
+        fork.knownHash = knownHash;
+        fork.ships = ships;
+        fork.shipStarts = shipStarts;
+        fork.shipSteps = shipSteps;
+        fork.shipHitsLeft = shipHitsLeft;
+        fork.shipCount = shipCount;
+        fork.shipsAfloat = shipsAfloat;
+        fork.lastSunkShip = lastSunkShip;
+        fork.shotLog = shotLog;
+        fork.shotCount = shotCount;
+        fork.sharesArrays = true;
+        sharesArrays = true;
+        fork.sharesShotChunks = true;
+        sharesShotChunks = true;
+        return fork;
+    }
+
+    /**
+     * Copies the ship arrays if they are shared with a fork. Of the shot log only
+     * the chunk list and the chunk the next shot goes in are copied, the chunks
+     * before it are full and never changed again
+     */
+    private void ownArrays() {
+        if (!sharesArrays)
+            return;
+        ships = ships.clone();
+        shipStarts = shipStarts.clone();
+        shipSteps = shipSteps.clone();
+        shipHitsLeft = shipHitsLeft.clone();
+        int chunk = shotCount >>> shotChunkBits;
+        long[][] chunks = new long[Math.max(shotLog.length, chunk + 1)][];
+        System.arraycopy(shotLog, 0, chunks, 0, Math.min(chunk, shotLog.length));
+        if (chunk < shotLog.length && shotLog[chunk] != null)
+            chunks[chunk] = shotLog[chunk].clone();
+        shotLog = chunks;
+        sharesArrays = false;
+    }
+
+    /** @return Amount of squares that have been hit since the board was emptied */
+    public int getShotCount() {
+        return shotCount;
+    }
+
+    /**
+     * @param i Index of shot, from 0 to getShotCount() - 1
+     * @return Square (x * height + y) hit by shot number i
+     */
+    public long getShotSquare(int i) throws IllegalArgumentException {
+        if (i < 0 || i >= shotCount)
+            throw new IllegalArgumentException(String.format("There is no shot number %d", i));
+        return shotLog[i >>> shotChunkBits][i & (shotChunkSize - 1)];
+    }
+
+    private void logShot(long cell) {
+        ownArrays();
+        int chunk = shotCount >>> shotChunkBits;
+        int offset = shotCount & (shotChunkSize - 1);
+        if (chunk == shotLog.length)
+            shotLog = Arrays.copyOf(shotLog, chunk * 2);
+        if (shotLog[chunk] == null)
+            shotLog[chunk] = new long[chunk == 0 ? 16 : shotChunkSize];
+        else if (offset == shotLog[chunk].length)
+            shotLog[chunk] = Arrays.copyOf(shotLog[chunk], offset * 2);
+        shotLog[chunk][offset] = cell;
+        shotCount++;
+    }
+
+    /** @return Number of squares containing a ship that are not hit yet */
+    public int getShipSquaresLeft() {
+        return shipSquaresLeft;
+    }
+
+    /** @return Number of ships placed with placeBattleShip() that are not sunk */
+    public int getShipsAfloat() {
+        return shipsAfloat;
+    }
+
+    /**
+     * @return The ship that was sunk by the latest hit, or null if the latest hit
+     *         did not sink a ship
+     */
+    public Battleship getLastSunkShip() {
+        return lastSunkShip;
+    }
+
+    /**
+     * Registers hit in the square and updates the ship counters. Caller is
+     * responsible for validation
+     *
+     * @return Whether the hit sank a ship placed with placeBattleShip()
+     */
+    boolean markHit(int x, int y) {
+        boolean sunk = recordHit(cell(x, y));
+        squareChanged(x, y);
+        return sunk;
+    }
+
+    private boolean recordHit(long cell) {
+        hitMask.set(cell);
+        logShot(cell);
+        hashHit(cell);
+        lastSunkShip = null;
+        if (!shipMask.get(cell))
+            return false;
+        shipSquaresLeft--;
+        for (int i = 0; i < shipCount; i++) {
+            long offset = cell - shipStarts[i];
+            if (offset >= 0 && offset % shipSteps[i] == 0 && offset / shipSteps[i] < ships[i].getLength()) {
+                if (--shipHitsLeft[i] == 0) {
+                    shipsAfloat--;
+                    lastSunkShip = ships[i];
+                    knownHash ^= zobristKey(cell, sunkKind + ships[i].getLength());
+                    return true;
+                }
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /** Registers ship in the square. Caller is responsible for validation */
+    void markShip(int x, int y) {
+        long cell = cell(x, y);
+        shipMask.set(cell);
+        hashShip(cell);
+        if (!hitMask.get(cell))
+            shipSquaresLeft++;
+        squareChanged(x, y);
+    }
+
+    /** Tells listener which squares of this board change from now on */
+    public void addListener(BoardListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    public void removeListener(BoardListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                BoardListener[] remaining = new BoardListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, i);
+                System.arraycopy(listeners, i + 1, remaining, i, remaining.length - i);
+                listeners = remaining;
+                return;
+            }
+        }
+    }
+
+    private void squareChanged(int x, int y) {
+        for (BoardListener listener : listeners) {
+            listener.squareChanged(this, x, y);
+        }
+    }
+
+    private void boardChanged() {
+        for (BoardListener listener : listeners) {
+            listener.boardChanged(this);
+        }
+    }
+
+    /** Adds the ship key of the cell, after its ship bit is set */
+    private void hashShip(long cell) {
+        long key = zobristKey(cell, shipKind);
+        zobristHash ^= key;
+        shipHash ^= key;
+        if (hitMask.get(cell))
+            knownHash ^= key;
+    }
+
+    /** Adds the hit key of the cell, after its hit bit is set */
+    private void hashHit(long cell) {
+        long key = zobristKey(cell, hitKind);
+        zobristHash ^= key;
+        knownHash ^= shipMask.get(cell) ? key ^ zobristKey(cell, shipKind) : key;
+    }
+
+    /**
+     * Random looking key of a square and kind, computed instead of looked up so
+     * boards of any size need no table. The mixing is the finalizer of SplitMix64,
+     * which maps 0 to 0, so the input is offset to give square 0 a key too
+     */
+    private static long zobristKey(long cell, int kind) {
+        long z = (cell + 1) * 0x9E3779B97F4A7C15L + kind * 0xD1B54A32D192ED03L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return Zobrist hash of the ship and hit squares. Boards with the same size
+     *         and squares have the same hash
+     */
+    public long getZobristHash() {
+        return zobristHash;
+    }
+
+    /**
+     * @return Zobrist hash of the ship squares. Stays the same as the board is
+     *         shot at, so it tells whether two boards have the same ship layout
+     */
+    public long getShipHash() {
+        return shipHash;
+    }
+
+    /**
+     * @return Zobrist hash of what the opponent knows: the hit squares, which of
+     *         them contain a ship, and which shots sank a ship of which length.
+     *         Ship squares that are not hit do not change it, so it can key
+     *         evaluations of the board by a computer opponent
+     */
+    public long getKnownHash() {
+        return knownHash;
+    }
+
+    /**
+     * Checks that no ship covers the squares a ship would cover. Caller is
+     * responsible for keeping the placement within the board
+     *
+     * @param index Placement index for the ship's length on this board
+     * @param start First square of the placement, x * height + y
+     * @return Whether the ship can be placed at start
+     */
+    boolean isFree(PlacementIndex index, long start, boolean placeAlongX) {
+        return index.isFree(shipMask, start, placeAlongX);
+    }
+
+    private long cell(int x, int y) {
+        return (long) x * height + y;
     }
 
     @Override
     public String toString() {
-        String result = "";
-        for (Position[] posArr : squares) {
-            for (Position pos : posArr) {
-                result += "[" + pos + "]";
+        StringBuilder result = new StringBuilder();
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                result.append('[').append(getSquare(x, y)).append(']');
             }
-            result += "\n";
+            result.append('\n');
         }
-        return result;
+        return result.toString();
     }
 
     public String serialize() {
-        String result = "";
-        for (int x = 0; x < squares.length; x++) {
-            for (int y = 0; y < squares[x].length; y++) {
-                result += getSquare(x, y).serialize() + "-";
+        // About 16 characters per square, in long so large boards do not overflow.
+        // Past the cap the builder grows as needed
+        StringBuilder result = new StringBuilder((int) Math.min((long) width * height * 16, 1 << 24));
+        try {
+            serializeTo(result);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Writes the same text as serialize() to out, square by square, so the
+     * serialized board is never held in memory
+     *
+     * @param out Where to write the board, typically a buffered Writer
+     */
+    public void serializeTo(Appendable out) throws IOException {
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                long cell = cell(x, y);
+                Position.serializeTo(out, x, y, hitMask.get(cell), shipMask.get(cell));
+                out.append('-');
             }
         }
-        return result;
     }
 
     @Override
@@ -231,19 +789,19 @@ public class GameBoard {
 
         GameBoard board = (GameBoard) o;
 
-        if (squares.length != board.squares.length)
-            return false;
+        // Different hashes tell the boards apart without looking at the squares
+        return width == board.width && height == board.height && zobristHash == board.zobristHash
+                && shipMask.sameBits(board.shipMask) && hitMask.sameBits(board.hitMask);
+    }
 
-        for (int x = 0; x < squares.length; x++) {
-            if (squares[x].length != board.squares[x].length)
-                return false;
-            for (int y = 0; y < squares[x].length; y++) {
-                if (!squares[x][y].equals(board.squares[x][y])) {
-                    return false;
-                }
-            }
-        }
-        return true;
+    /**
+     * Consistent with equals() and computed in constant time from the Zobrist
+     * hash, so boards can key hash maps. Changes as the board changes, so a board
+     * must not be changed while it is a key
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(zobristHash) * 31 * 31 + width * 31 + height;
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,244 @@
+package battleships.models;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Plays a game through a log of its moves, so the game can be taken back to any
+ * earlier move. Every move that changes the game is appended as one long to a
+ * ring buffer of events: fired shots, switching player, submitting a board and
+ * ending the placement phase. Placing ships is not a move, the log takes a
+ * snapshot of the game after it instead.
+ *
+ * The log also takes a snapshot of the game every snapshotInterval events. To
+ * go back to an earlier position the log copies the newest snapshot at or before
+ * it and replays the events after the snapshot, so it costs at most
+ * snapshotInterval events and not a replay from the start. Snapshots are forks
+ * of the game, see Game.fork(), so taking and copying them does not depend on
+ * the size of the board. Once more than
+ * capacity events are logged the oldest are overwritten, and positions before
+ * them can no longer be reached
+ */
+public class GameEventLog {
+    public static final int FIRE = 1;
+    public static final int SWITCH = 2;
+    public static final int SUBMIT = 3;
+    public static final int END_PLACEMENT = 4;
+
+    // Events have the type in the top 8 bits and two 28 bit values below
+    private static final int valueBits = 28;
+    private static final long valueMask = (1L << valueBits) - 1;
+
+    private final long[] events;
+    private final int snapshotInterval;
+    // Names submitted with SUBMIT events, by the index in the event
+    private final List<String> names = new ArrayList<>();
+    // Snapshots from oldest to newest, no two at the same position
+    private final Deque<Snapshot> snapshots = new ArrayDeque<>();
+
+    private Game game;
+    // Amount of events logged since the log was created
+    private long position;
+
+    private static final class Snapshot {
+        final long position;
+        final Game game;
+
+        Snapshot(long position, Game game) {
+            this.position = position;
+            this.game = game;
+        }
+    }
+
+    /**
+     * @param game             Game to play through the log. It must not be
+     *                         changed other than through the log afterwards
+     * @param capacity         Amount of events kept, rounded up to a power of 2
+     * @param snapshotInterval Amount of events between each snapshot
+     * @throws IllegalArgumentException When the interval is not positive or larger
+     *                                  than the capacity, or the board is too big
+     *                                  for the events
+     */
+    public GameEventLog(Game game, int capacity, int snapshotInterval) throws IllegalArgumentException {
+        if (snapshotInterval < 1 || snapshotInterval > capacity)
+            throw new IllegalArgumentException("Snapshot interval must be positive and at most the capacity");
+        if (Math.max(game.getBoardWidth(), game.getBoardHeight()) > valueMask)
+            throw new IllegalArgumentException("Board is too big to log shots on");
+        this.events = new long[capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1];
+        this.snapshotInterval = snapshotInterval;
+        this.game = game;
+        takeSnapshot();
+    }
+
+    /**
+     * Fires a shot for the current player, see Game.resolveShot(). Only shots
+     * that are fired are logged
+     */
+    public ShotResult fireShot(int x, int y) throws IllegalStateException {
+        ShotResult result = game.resolveShot(x, y);
+        if (result.isFired())
+            append(event(FIRE, x, y));
+        return result;
+    }
+
+    public void switchPlayer() {
+        game.switchPlayer();
+        append(event(SWITCH, 0, 0));
+    }
+
+    public void submitBoard(String newName) throws IllegalArgumentException, IllegalStateException {
+        game.submitBoard(newName);
+        names.add(newName);
+        append(event(SUBMIT, 0, names.size() - 1));
+    }
+
+    public void endPlacementPhase() {
+        game.endPlacementPhase();
+        append(event(END_PLACEMENT, 0, 0));
+    }
+
+    /** Places the ships of the current player, see Game.randomizeCurrentBoard() */
+    public void randomizeCurrentBoard(RandomGenerator random) throws IllegalStateException {
+        game.randomizeCurrentBoard(random);
+        // The placement is not an event, so it is kept by replacing the snapshot
+        // at this position
+        if (!snapshots.isEmpty() && snapshots.peekLast().position == position)
+            snapshots.pollLast();
+        takeSnapshot();
+    }
+
+    /** Takes back the latest event */
+    public void undo() throws IllegalStateException {
+        if (position == getOldestPosition())
+            throw new IllegalStateException("There are no events to undo");
+        restore(position - 1);
+    }
+
+    /**
+     * Takes the game back to how it was after the first position events. Later
+     * events are dropped, and getGame() returns a new game object afterwards
+     *
+     * @throws IllegalArgumentException When the position is not between
+     *                                  getOldestPosition() and getPosition()
+     */
+    public void restore(long position) throws IllegalArgumentException {
+        Game restored = replay(position);
+        while (snapshots.peekLast().position > position) {
+            snapshots.pollLast();
+        }
+        this.game = restored;
+        this.position = position;
+    }
+
+    /**
+     * Builds the game as it was after the first position events, without
+     * changing the log
+     *
+     * @throws IllegalArgumentException When the position is not between
+     *                                  getOldestPosition() and getPosition()
+     */
+    public Game replay(long position) throws IllegalArgumentException {
+        if (position < getOldestPosition() || position > this.position)
+            throw new IllegalArgumentException(String.format("Position %d is not in the log", position));
+        Snapshot snapshot = null;
+        for (Iterator<Snapshot> it = snapshots.descendingIterator(); it.hasNext() && snapshot == null;) {
+            Snapshot candidate = it.next();
+            if (candidate.position <= position)
+                snapshot = candidate;
+        }
+        Game replayed = snapshot.game.fork();
+        for (long i = snapshot.position; i < position; i++) {
+            apply(replayed, getEvent(i));
+        }
+        return replayed;
+    }
+
+    private void apply(Game game, long event) {
+        switch (getType(event)) {
+            case FIRE:
+                game.resolveShot(getX(event), getY(event));
+                break;
+            case SWITCH:
+                game.switchPlayer();
+                break;
+            case SUBMIT:
+                game.submitBoard(names.get(getY(event)));
+                break;
+            case END_PLACEMENT:
+                game.endPlacementPhase();
+                break;
+            default:
+                throw new IllegalStateException(String.format("Unknown event type %d", getType(event)));
+        }
+    }
+
+    private void append(long event) {
+        events[(int) position & (events.length - 1)] = event;
+        position++;
+        // Snapshots are only kept while the events after them are
+        while (snapshots.peekFirst().position < getOldestPosition()) {
+            snapshots.pollFirst();
+        }
+        if (position - snapshots.peekLast().position >= snapshotInterval)
+            takeSnapshot();
+    }
+
+    private void takeSnapshot() {
+        snapshots.addLast(new Snapshot(position, game.fork()));
+    }
+
+    private static long event(int type, int x, int y) {
+        return ((long) type << (2 * valueBits)) | ((long) x << valueBits) | y;
+    }
+
+    /**
+     * @param position Position of the event, from getOldestPosition() to
+     *                 getPosition() - 1
+     * @return The event, see getType(), getX() and getY()
+     * @throws IllegalArgumentException When the event is not in the log
+     */
+    public long getEvent(long position) throws IllegalArgumentException {
+        if (position < getOldestPosition() || position >= this.position)
+            throw new IllegalArgumentException(String.format("There is no event at position %d", position));
+        return events[(int) position & (events.length - 1)];
+    }
+
+    /** @return FIRE, SWITCH, SUBMIT or END_PLACEMENT */
+    public static int getType(long event) {
+        return (int) (event >>> (2 * valueBits));
+    }
+
+    /** @return X coordinate of a FIRE event */
+    public static int getX(long event) {
+        return (int) ((event >>> valueBits) & valueMask);
+    }
+
+    /** @return Y coordinate of a FIRE event, or the index of the name of a SUBMIT event */
+    public static int getY(long event) {
+        return (int) (event & valueMask);
+    }
+
+    /** @return Name submitted by a SUBMIT event */
+    public String getSubmittedName(long event) {
+        return names.get(getY(event));
+    }
+
+    /** @return The game as of the latest event */
+    public Game getGame() {
+        return game;
+    }
+
+    /** @return Amount of events logged, also the position of the next event */
+    public long getPosition() {
+        return position;
+    }
+
+    /** @return Earliest position the game can be restored to */
+    public long getOldestPosition() {
+        return Math.max(0, Math.max(position - events.length, snapshots.peekFirst().position));
+    }
+}
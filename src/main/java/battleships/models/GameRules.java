@@ -0,0 +1,148 @@
+package battleships.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The rules a game is played by: board size, the lengths of the ships in each
+ * fleet, how many shots a player fires each turn and whether ships may be
+ * placed next to each other. Rules are validated when created and never change,
+ * so one rules object can be shared by any number of games on any thread
+ */
+public final class GameRules {
+    private final int boardWidth;
+    private final int boardHeight;
+    private final int[] fleet;
+    private final int shotsPerTurn;
+    private final boolean shipsMayTouch;
+
+    /**
+     * @param boardWidth    Width of the boards in squares
+     * @param boardHeight   Height of the boards in squares
+     * @param fleet         Lengths of the ships each player places, in placement
+     *                      order
+     * @param shotsPerTurn  Amount of shots a player fires each turn
+     * @param shipsMayTouch Whether ships may be placed on squares next to another
+     *                      ship, diagonals included
+     * @throws IllegalArgumentException When the board is smaller than the minimum,
+     *                                  there are no shots per turn or the fleet
+     *                                  can not fit on the board
+     */
+    public GameRules(int boardWidth, int boardHeight, int[] fleet, int shotsPerTurn, boolean shipsMayTouch)
+            throws IllegalArgumentException {
+        if (boardWidth < GameBoard.minDimension || boardHeight < GameBoard.minDimension) {
+            throw new IllegalArgumentException(String.format(
+                    "Width and height must be at least as big as minDimensions(%d) big", GameBoard.minDimension));
+        }
+        if (shotsPerTurn < 1)
+            throw new IllegalArgumentException("Players must have at least one shot per turn");
+        if (fleet.length == 0)
+            throw new IllegalArgumentException("Fleet must have at least one ship");
+        long squares = 0;
+        // A ship and the squares right of and below it never overlap those of
+        // another ship that may not touch it, and fit on a board one bigger
+        long spacedSquares = 0;
+        for (int length : fleet) {
+            if (length < 1 || length > Math.max(boardWidth, boardHeight)) {
+                throw new IllegalArgumentException(String.format("Ship of length %d does not fit on a %dx%d board",
+                        length, boardWidth, boardHeight));
+            }
+            squares += length;
+            spacedSquares += 2L * (length + 1);
+        }
+        if (squares > (long) boardWidth * boardHeight) {
+            throw new IllegalArgumentException(String.format("Fleet covers %d squares, but the board only has %d",
+                    squares, (long) boardWidth * boardHeight));
+        }
+        if (!shipsMayTouch && spacedSquares > (long) (boardWidth + 1) * (boardHeight + 1))
+            throw new IllegalArgumentException("Fleet does not fit on the board without ships touching");
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.fleet = fleet.clone();
+        this.shotsPerTurn = shotsPerTurn;
+        this.shipsMayTouch = shipsMayTouch;
+    }
+
+    /**
+     * @return The same rules on a board of another size
+     * @throws IllegalArgumentException When the fleet does not fit on the board,
+     *                                  see the constructor
+     */
+    public GameRules withBoardSize(int boardWidth, int boardHeight) throws IllegalArgumentException {
+        if (boardWidth == this.boardWidth && boardHeight == this.boardHeight)
+            return this;
+        return new GameRules(boardWidth, boardHeight, fleet, shotsPerTurn, shipsMayTouch);
+    }
+
+    /**
+     * @return The same rules with another amount of shots per turn
+     * @throws IllegalArgumentException When shotsPerTurn is not positive
+     */
+    public GameRules withShotsPerTurn(int shotsPerTurn) throws IllegalArgumentException {
+        if (shotsPerTurn == this.shotsPerTurn)
+            return this;
+        return new GameRules(boardWidth, boardHeight, fleet, shotsPerTurn, shipsMayTouch);
+    }
+
+    /** @return New battleships for one player, one per length of the fleet */
+    public List<Battleship> createFleet() {
+        List<Battleship> ships = new ArrayList<>(fleet.length);
+        for (int length : fleet) {
+            ships.add(new Battleship(length));
+        }
+        return ships;
+    }
+
+    public int getBoardWidth() {
+        return boardWidth;
+    }
+
+    public int getBoardHeight() {
+        return boardHeight;
+    }
+
+    /** @return Copy of the lengths of the ships in the fleet */
+    public int[] getFleet() {
+        return fleet.clone();
+    }
+
+    public int getShipCount() {
+        return fleet.length;
+    }
+
+    public int getShipLength(int i) {
+        return fleet[i];
+    }
+
+    public int getShotsPerTurn() {
+        return shotsPerTurn;
+    }
+
+    public boolean shipsMayTouch() {
+        return shipsMayTouch;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+
+        if (!(o instanceof GameRules))
+            return false;
+
+        GameRules rules = (GameRules) o;
+
+        return boardWidth == rules.boardWidth && boardHeight == rules.boardHeight
+                && Arrays.equals(fleet, rules.fleet) && shotsPerTurn == rules.shotsPerTurn
+                && shipsMayTouch == rules.shipsMayTouch;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 31 * boardWidth + boardHeight;
+        result = 31 * result + Arrays.hashCode(fleet);
+        result = 31 * result + shotsPerTurn;
+        return 31 * result + (shipsMayTouch ? 1 : 0);
+    }
+}
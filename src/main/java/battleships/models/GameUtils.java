@@ -1,7 +1,11 @@
 package battleships.models;
 
 public class GameUtils {
-    public static int boardWidth = 6;
-    public static int boardHeight = 6;
-    public static String saveGameFileName = "savedgame";
+    public static final int boardWidth = 6;
+    public static final int boardHeight = 6;
+    public static final String saveGameFileName = "savedgame";
+
+    /** Rules of the games started from the app: ships of length 4, 3 and 2 */
+    public static final GameRules DEFAULT_RULES = new GameRules(boardWidth, boardHeight, new int[] { 4, 3, 2 }, 3,
+            true);
 }
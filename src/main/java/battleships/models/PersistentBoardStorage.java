@@ -0,0 +1,153 @@
+package battleships.models;
+
+import java.util.Arrays;
+
+/**
+ * Board storage that can be copied in constant time. The words are kept in
+ * leaves of leafWords words, under a tree of nodes with 32 children each. Leaves
+ * and subtrees without any bit set are left out, so the storage is sparse too.
+ *
+ * Nodes are shared between copies. A storage only changes nodes it owns, and
+ * copies the path down to a node it does not own before changing it. copy()
+ * gives both storages new owners, so after a copy neither changes the nodes
+ * they share, and each one copies at most one path per leaf it changes
+ */
+final class PersistentBoardStorage implements BoardStorage {
+    private static final int leafBits = 3;
+    private static final int leafWords = 1 << leafBits;
+    private static final int childBits = 5;
+    private static final int children = 1 << childBits;
+
+    private static final class Node {
+        final Object owner;
+        // Children of an inner node, words of a leaf
+        final Node[] nodes;
+        final long[] words;
+
+        Node(Object owner, boolean leaf) {
+            this.owner = owner;
+            this.nodes = leaf ? null : new Node[children];
+            this.words = leaf ? new long[leafWords] : null;
+        }
+
+        Node(Object owner, Node node) {
+            this.owner = owner;
+            this.nodes = node.nodes == null ? null : node.nodes.clone();
+            this.words = node.words == null ? null : node.words.clone();
+        }
+    }
+
+    // Levels of inner nodes above the leaves
+    private final int depth;
+    private Node root;
+    private Object owner = new Object();
+
+    /** @param words Amount of words on the board */
+    PersistentBoardStorage(long words) {
+        long leaves = (words + leafWords - 1) >>> leafBits;
+        int levels = 0;
+        for (long capacity = 1; capacity < leaves; capacity <<= childBits) {
+            levels++;
+        }
+        this.depth = levels;
+    }
+
+    private PersistentBoardStorage(int depth, Node root) {
+        this.depth = depth;
+        this.root = root;
+    }
+
+    /** @return A storage with the same bits as source */
+    static PersistentBoardStorage of(BoardStorage source, long words) {
+        PersistentBoardStorage storage = new PersistentBoardStorage(words);
+        source.forEachWord(storage::orWord);
+        return storage;
+    }
+
+    @Override
+    public long getWord(long word) {
+        long leaf = word >>> leafBits;
+        Node node = root;
+        for (int shift = childBits * (depth - 1); shift >= 0 && node != null; shift -= childBits) {
+            node = node.nodes[(int) (leaf >>> shift) & (children - 1)];
+        }
+        return node == null ? 0 : node.words[(int) word & (leafWords - 1)];
+    }
+
+    @Override
+    public void orWord(long word, long bits) {
+        if (bits == 0)
+            return;
+        long leaf = word >>> leafBits;
+        root = own(root, depth == 0);
+        Node node = root;
+        for (int shift = childBits * (depth - 1); shift >= 0; shift -= childBits) {
+            int i = (int) (leaf >>> shift) & (children - 1);
+            node.nodes[i] = own(node.nodes[i], shift == 0);
+            node = node.nodes[i];
+        }
+        node.words[(int) word & (leafWords - 1)] |= bits;
+    }
+
+    /** @return The node if this storage owns it, otherwise a copy it owns */
+    private Node own(Node node, boolean leaf) {
+        if (node == null)
+            return new Node(owner, leaf);
+        return node.owner == owner ? node : new Node(owner, node);
+    }
+
+    @Override
+    public void forEachWord(WordVisitor visitor) {
+        visit(root, depth, 0, visitor);
+    }
+
+    private static void visit(Node node, int level, long first, WordVisitor visitor) {
+        if (node == null)
+            return;
+        if (level == 0) {
+            for (int i = 0; i < leafWords; i++) {
+                if (node.words[i] != 0)
+                    visitor.visit((first << leafBits) + i, node.words[i]);
+            }
+            return;
+        }
+        for (int i = 0; i < children; i++) {
+            visit(node.nodes[i], level - 1, (first << childBits) + i, visitor);
+        }
+    }
+
+    /** Skips the subtrees both storages share, so forks compare quickly */
+    @Override
+    public boolean sameBits(BoardStorage other) {
+        if (!(other instanceof PersistentBoardStorage) || ((PersistentBoardStorage) other).depth != depth)
+            return BoardStorage.super.sameBits(other);
+        return sameBits(root, ((PersistentBoardStorage) other).root, depth);
+    }
+
+    private static boolean sameBits(Node a, Node b, int level) {
+        if (a == b)
+            return true;
+        // Nodes are only created to set bits in them, so they are never empty
+        if (a == null || b == null)
+            return false;
+        if (level == 0)
+            return Arrays.equals(a.words, b.words);
+        for (int i = 0; i < children; i++) {
+            if (!sameBits(a.nodes[i], b.nodes[i], level - 1))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+    }
+
+    /** Shares every node with the copy, in constant time */
+    @Override
+    public BoardStorage copy() {
+        owner = new Object();
+        return new PersistentBoardStorage(depth, root);
+    }
+}
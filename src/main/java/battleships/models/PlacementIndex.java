@@ -0,0 +1,205 @@
+package battleships.models;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Precomputed bitmasks of the squares a ship covers, for one board size and
+ * ship length. Boards keep one bit per square (x * height + y) in an array of
+ * longs or a board storage, and a placement covers the squares start, start + step, ..., where step
+ * is height along the x-axis and 1 along the y-axis. Which words those bits fall
+ * in, relative to the word of start, and which bits they are, only depend on the
+ * bit of start within its word. The index keeps these word masks for all 64 bit
+ * positions and both axes, so testing or marking a placement is one masked
+ * operation per word instead of one per square.
+ *
+ * Indexes are immutable and shared through a bounded cache, see of()
+ */
+public final class PlacementIndex {
+    // Amount of indexes kept in the cache
+    private static final int maxCached = 256;
+
+    private static final Map<Key, PlacementIndex> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, PlacementIndex> eldest) {
+            return size() > maxCached;
+        }
+    };
+
+    /** Board size and ship length of a cached index */
+    private static final class Key {
+        final int width;
+        final int height;
+        final int length;
+
+        Key(int width, int height, int length) {
+            this.width = width;
+            this.height = height;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return width == key.width && height == key.height && length == key.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return (width * 31 + height) * 31 + length;
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final int length;
+
+    // For each bit of the start square within its word, the covered words
+    // relative to the word of start and the covered bits of each word. Index 0
+    // is along the y-axis and 1 along the x-axis
+    private final int[][][] words = new int[2][64][];
+    private final long[][][] masks = new long[2][64][];
+
+    private PlacementIndex(int width, int height, int length) {
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        for (int axis = 0; axis < 2; axis++) {
+            int step = axis == 1 ? height : 1;
+            for (int bit = 0; bit < 64; bit++) {
+                int[] shapeWords = new int[length];
+                long[] shapeMasks = new long[length];
+                int count = 0;
+                for (int j = 0; j < length; j++) {
+                    long square = bit + (long) j * step;
+                    int word = (int) (square >>> 6);
+                    if (count == 0 || shapeWords[count - 1] != word)
+                        shapeWords[count++] = word;
+                    shapeMasks[count - 1] |= 1L << square;
+                }
+                words[axis][bit] = Arrays.copyOf(shapeWords, count);
+                masks[axis][bit] = Arrays.copyOf(shapeMasks, count);
+            }
+        }
+    }
+
+    /**
+     * Gets the index for a board size and ship length, building it if it is not
+     * cached. The least recently used index is dropped when the cache is full
+     *
+     * @throws IllegalArgumentException When a dimension or the length is not
+     *                                  positive
+     */
+    public static PlacementIndex of(int width, int height, int length) throws IllegalArgumentException {
+        if (width < 1 || height < 1 || length < 1)
+            throw new IllegalArgumentException("Board dimensions and ship length must be positive");
+        synchronized (cache) {
+            return cache.computeIfAbsent(new Key(width, height, length),
+                    k -> new PlacementIndex(width, height, length));
+        }
+    }
+
+    /** @return Whether the placement is within the board */
+    public boolean fits(int x, int y, boolean alongX) {
+        if (x < 0 || y < 0)
+            return false;
+        if (alongX)
+            return x + length <= width && y < height;
+        return x < width && y + length <= height;
+    }
+
+    /**
+     * @param mask    One bit per square of the board
+     * @param start   First square of the placement, x * height + y. The
+     *                placement must fit on the board
+     * @param alongX  Whether the placement is along the x-axis
+     * @return Whether none of the squares of the placement are set in mask
+     */
+    public boolean isFree(long[] mask, int start, boolean alongX) {
+        int axis = alongX ? 1 : 0;
+        int[] shapeWords = words[axis][start & 63];
+        long[] shapeMasks = masks[axis][start & 63];
+        int base = start >>> 6;
+        for (int i = 0; i < shapeWords.length; i++) {
+            if ((mask[base + shapeWords[i]] & shapeMasks[i]) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /** Sets the squares of the placement in mask, see isFree() */
+    public void mark(long[] mask, int start, boolean alongX) {
+        int axis = alongX ? 1 : 0;
+        int[] shapeWords = words[axis][start & 63];
+        long[] shapeMasks = masks[axis][start & 63];
+        int base = start >>> 6;
+        for (int i = 0; i < shapeWords.length; i++) {
+            mask[base + shapeWords[i]] |= shapeMasks[i];
+        }
+    }
+
+    /** @return Amount of squares of the placement set in mask, see isFree() */
+    public int countSet(long[] mask, int start, boolean alongX) {
+        int axis = alongX ? 1 : 0;
+        int[] shapeWords = words[axis][start & 63];
+        long[] shapeMasks = masks[axis][start & 63];
+        int base = start >>> 6;
+        int count = 0;
+        for (int i = 0; i < shapeWords.length; i++) {
+            count += Long.bitCount(mask[base + shapeWords[i]] & shapeMasks[i]);
+        }
+        return count;
+    }
+
+    /** Same as isFree(long[], int, boolean), on the storage of a board */
+    boolean isFree(BoardStorage mask, long start, boolean alongX) {
+        int axis = alongX ? 1 : 0;
+        int[] shapeWords = words[axis][(int) start & 63];
+        long[] shapeMasks = masks[axis][(int) start & 63];
+        long base = start >>> 6;
+        for (int i = 0; i < shapeWords.length; i++) {
+            if ((mask.getWord(base + shapeWords[i]) & shapeMasks[i]) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /** Same as mark(long[], int, boolean), on the storage of a board */
+    void mark(BoardStorage mask, long start, boolean alongX) {
+        int axis = alongX ? 1 : 0;
+        int[] shapeWords = words[axis][(int) start & 63];
+        long[] shapeMasks = masks[axis][(int) start & 63];
+        long base = start >>> 6;
+        for (int i = 0; i < shapeWords.length; i++) {
+            mask.orWord(base + shapeWords[i], shapeMasks[i]);
+        }
+    }
+
+    /** Same as countSet(long[], int, boolean), on the storage of a board */
+    int countSet(BoardStorage mask, long start, boolean alongX) {
+        int axis = alongX ? 1 : 0;
+        int[] shapeWords = words[axis][(int) start & 63];
+        long[] shapeMasks = masks[axis][(int) start & 63];
+        long base = start >>> 6;
+        int count = 0;
+        for (int i = 0; i < shapeWords.length; i++) {
+            count += Long.bitCount(mask.getWord(base + shapeWords[i]) & shapeMasks[i]);
+        }
+        return count;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getLength() {
+        return length;
+    }
+}
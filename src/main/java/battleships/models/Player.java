@@ -1,7 +1,7 @@
 package battleships.models;
 
 public class Player {
-    private final int maxShots = 3;
+    private final int maxShots;
 
     private String name;
     private final GameBoard friendlyBoard;
@@ -9,10 +9,23 @@ public class Player {
     private int shotsLeft;
 
     public Player(String name, GameBoard friendlyBoard, GameBoard enemyBoard) throws IllegalArgumentException {
+        this(name, friendlyBoard, enemyBoard, GameUtils.DEFAULT_RULES.getShotsPerTurn());
+    }
+
+    /**
+     * @param maxShots Amount of shots the player gets each turn, see
+     *                 GameRules.getShotsPerTurn()
+     */
+    public Player(String name, GameBoard friendlyBoard, GameBoard enemyBoard, int maxShots)
+            throws IllegalArgumentException {
         validateName(name);
+        if (maxShots < 1) {
+            throw new IllegalArgumentException("Player must have at least one shot per turn");
+        }
         this.name = name;
         this.friendlyBoard = friendlyBoard;
         this.enemyBoard = enemyBoard;
+        this.maxShots = maxShots;
         this.shotsLeft = maxShots;
     }
 
@@ -34,15 +47,37 @@ public class Player {
     }
 
     public void fireShot(int x, int y) throws IllegalStateException, IllegalArgumentException {
-        if (shotsLeft < 1) {
+        ShotResult result = resolveShot(x, y);
+        if (result == ShotResult.NO_SHOTS_LEFT) {
             throw new IllegalStateException("No more shots left");
         }
-        enemyBoard.fireShot(x, y);
-        shotsLeft--;
+        if (!result.isFired()) {
+            // Nothing was registered, so the board throws the matching exception
+            enemyBoard.fireShot(x, y);
+        }
+    }
+
+    /**
+     * Same as fireShot(), but reports invalid shots through the result instead of
+     * throwing exceptions
+     *
+     * @param x x coordinate on enemy board
+     * @param y y coordinate on enemy board
+     * @return NO_SHOTS_LEFT if the player is out of shots, otherwise the result
+     *         from the enemy board
+     */
+    public ShotResult resolveShot(int x, int y) {
+        if (shotsLeft < 1) {
+            return ShotResult.NO_SHOTS_LEFT;
+        }
+        ShotResult result = enemyBoard.resolveShot(x, y);
+        if (result.isFired())
+            shotsLeft--;
+        return result;
     }
 
     public void fillShots() {
-        shotsLeft = 3;
+        shotsLeft = maxShots;
     }
 
     public void setShots(int shots) throws IllegalArgumentException {
@@ -70,16 +105,29 @@ public class Player {
                 && this.enemyBoard == player.enemyBoard && this.shotsLeft == player.shotsLeft;
     }
 
+    /**
+     * Consistent with equals(), which compares the boards by reference. Changes
+     * with the name and shots left
+     */
+    @Override
+    public int hashCode() {
+        int result = name.hashCode();
+        result = 31 * result + System.identityHashCode(friendlyBoard);
+        result = 31 * result + System.identityHashCode(enemyBoard);
+        return 31 * result + shotsLeft;
+    }
+
     /**
      * Same as equals() method, but with compare of the boards using their equals()
-     * method isntead of compare by reference
+     * method isntead of compare by reference. Boards with different Zobrist hashes
+     * are told apart without looking at their squares
      * 
      * @param player Player object to compare to this
      * @return whether player and this are equal
      */
     public boolean valueEquals(Player player) {
-        return this.name.equals(player.name) && this.friendlyBoard.equals(friendlyBoard)
-                && this.enemyBoard.equals(player.enemyBoard) && this.shotsLeft == player.shotsLeft;
+        return this.shotsLeft == player.shotsLeft && this.name.equals(player.name)
+                && this.friendlyBoard.equals(player.friendlyBoard) && this.enemyBoard.equals(player.enemyBoard);
     }
 
     public int getShotsLeft() {
@@ -1,11 +1,17 @@
 package battleships.models;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 /**
- * Holds positive coordinates
+ * Holds positive coordinates. A Position is either standalone and holds its own
+ * state, or a view of a square in a GameBoard that reads and writes through to
+ * the board
  */
 public class Position {
     private final int x;
     private final int y;
+    private final GameBoard board;
     private boolean isHit;
     private boolean containsShip;
 
@@ -21,23 +27,39 @@ public class Position {
 
         this.x = x;
         this.y = y;
+        this.board = null;
         this.isHit = false;
         this.containsShip = false;
     }
 
+    /**
+     * View of the square (x, y) in board. Coordinates are validated by the board
+     */
+    Position(GameBoard board, int x, int y) {
+        this.x = x;
+        this.y = y;
+        this.board = board;
+    }
+
     public void registerHit() throws IllegalStateException {
-        if (this.isHit) {
+        if (getIsHit()) {
             throw new IllegalStateException(String.format("Position is already hit at (%d, %d)", this.x, this.y));
         }
-        this.isHit = true;
+        if (board == null)
+            this.isHit = true;
+        else
+            board.markHit(x, y);
     }
 
     public void registerShip() throws IllegalStateException {
-        if (this.containsShip)
+        if (getContainsShip())
             throw new IllegalStateException(
                     String.format("A ship is already registered in this position at (%d, %d)", this.x,
                             this.y));
-        this.containsShip = true;
+        if (board == null)
+            this.containsShip = true;
+        else
+            board.markShip(x, y);
     }
 
     public int getX() {
@@ -49,20 +71,62 @@ public class Position {
     }
 
     public boolean getIsHit() {
-        return this.isHit;
+        return board == null ? this.isHit : board.isHit(x, y);
     }
 
     public boolean getContainsShip() {
-        return this.containsShip;
+        return board == null ? this.containsShip : board.containsShip(x, y);
     }
 
     @Override
     public String toString() {
-        return String.format("pos:(%d, %d) hit:%s ship:%s", this.x, this.y, this.isHit, this.containsShip);
+        return String.format("pos:(%d, %d) hit:%s ship:%s", this.x, this.y, getIsHit(), getContainsShip());
     }
 
     public String serialize() {
-        return String.format("%d:%d:%s:%s", this.x, this.y, this.isHit, this.containsShip);
+        StringBuilder result = new StringBuilder();
+        try {
+            serializeTo(result);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Writes the same text as serialize() to out
+     */
+    public void serializeTo(Appendable out) throws IOException {
+        serializeTo(out, this.x, this.y, getIsHit(), getContainsShip());
+    }
+
+    /**
+     * Writes a square in the format of serialize() to out without allocating
+     */
+    static void serializeTo(Appendable out, int x, int y, boolean isHit, boolean containsShip)
+            throws IOException {
+        appendInt(out, x);
+        out.append(':');
+        appendInt(out, y);
+        out.append(':');
+        out.append(isHit ? "true" : "false");
+        out.append(':');
+        out.append(containsShip ? "true" : "false");
+    }
+
+    /**
+     * Writes the decimal digits of a non-negative number to out without
+     * allocating, which Appendable has no method for
+     */
+    static void appendInt(Appendable out, int value) throws IOException {
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
     }
 
     @Override
@@ -76,7 +140,13 @@ public class Position {
         Position pos = (Position) o;
 
         return this.x == pos.x && this.y == pos.y &&
-                this.isHit == pos.isHit && this.containsShip == pos.containsShip;
+                getIsHit() == pos.getIsHit() && getContainsShip() == pos.getContainsShip();
+    }
+
+    /** Consistent with equals(), so views and standalone positions hash alike */
+    @Override
+    public int hashCode() {
+        return (31 * x + y) * 4 + (getIsHit() ? 2 : 0) + (getContainsShip() ? 1 : 0);
     }
 
     public static void main(String[] args) {
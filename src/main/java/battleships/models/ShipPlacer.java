@@ -0,0 +1,312 @@
+package battleships.models;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Places a fleet of battleships randomly on a board. For each ship the placer
+ * lists every placement that fits on the board without overlapping the ships
+ * already placed, and picks one of them uniformly. If a ship has nowhere to go
+ * the board is cleared and the fleet is placed from scratch, a bounded number of
+ * times.
+ *
+ * Boards with more squares than GameBoard.maxDenseSquares are too big to list
+ * the placements of. There the placer draws placements uniformly among all
+ * placements within the board and retries the ones that overlap, which picks
+ * uniformly among the free placements as well, and is fast as long as the fleet
+ * covers a small part of the board.
+ *
+ * When ships may not touch, the placer keeps a mask of the squares covered by or
+ * next to the ships placed so far, and only lets new ships go where that mask is
+ * clear.
+ *
+ * A placer keeps its candidate buffer between calls, so one placer should not be
+ * shared between threads. forThread() hands out one per thread, so boards and
+ * games do not each keep a buffer the size of the board
+ */
+public class ShipPlacer {
+    // Number of times the whole fleet is attempted before giving up
+    private final int maxAttempts = 100;
+    // Number of overlapping placements drawn for a ship before the fleet is
+    // attempted again, on boards that are too big to list placements on
+    private final int maxDraws = 10_000;
+
+    private final int width;
+    private final int height;
+
+    // Candidate placements for the current ship, encoded as (x * height + y) * 2
+    // plus 1 if the placement is along the x-axis. Null on boards that are too
+    // big to list placements on
+    private final int[] candidates;
+
+    // Squares covered by or next to a placed ship. Null when ships may touch
+    private final BoardStorage spacing;
+
+    // Placement indexes by ship length, looked up the first time they are needed
+    private PlacementIndex[] placements = new PlacementIndex[0];
+
+    // The latest placer used on each thread, for ships that may touch and for
+    // ships that may not
+    private static final ThreadLocal<ShipPlacer[]> threadPlacers = ThreadLocal.withInitial(() -> new ShipPlacer[2]);
+    // Set while placeAll() runs, so a listener placing ships from inside it gets
+    // another placer
+    private boolean busy;
+
+    /**
+     * @param width  Width of the boards to place ships on
+     * @param height Height of the boards to place ships on
+     */
+    public ShipPlacer(int width, int height) {
+        this(width, height, true);
+    }
+
+    /**
+     * @param width         Width of the boards to place ships on
+     * @param height        Height of the boards to place ships on
+     * @param shipsMayTouch Whether ships may be placed next to each other,
+     *                      diagonals included
+     */
+    public ShipPlacer(int width, int height, boolean shipsMayTouch) {
+        this.width = width;
+        this.height = height;
+        boolean listable = (long) width * height <= GameBoard.maxDenseSquares;
+        this.candidates = listable ? new int[width * height * 2] : null;
+        if (shipsMayTouch)
+            this.spacing = null;
+        else
+            this.spacing = listable ? new DenseBoardStorage((width * height + 63) >>> 6) : new SparseBoardStorage();
+    }
+
+    /**
+     * Gets a placer for boards of the given size, shared with earlier calls on
+     * the current thread. Only the latest size is kept, so a thread holds at most
+     * two placers
+     *
+     * @param shipsMayTouch Whether ships may be placed next to each other,
+     *                      diagonals included
+     */
+    public static ShipPlacer forThread(int width, int height, boolean shipsMayTouch) {
+        ShipPlacer[] placers = threadPlacers.get();
+        int i = shipsMayTouch ? 1 : 0;
+        ShipPlacer placer = placers[i];
+        if (placer == null || placer.busy || placer.width != width || placer.height != height) {
+            placer = new ShipPlacer(width, height, shipsMayTouch);
+            placers[i] = placer;
+        }
+        return placer;
+    }
+
+    /**
+     * Validates that the fleet could fit on the board. Fleets that fail here are
+     * rejected before any placement is attempted
+     *
+     * @param ships Fleet to validate
+     * @throws IllegalArgumentException When a ship is longer than the board or the
+     *                                  ships cover more squares than the board has
+     */
+    public void validateFleet(List<Battleship> ships) throws IllegalArgumentException {
+        long squares = 0;
+        for (Battleship ship : ships) {
+            if (ship.getLength() < 1 || ship.getLength() > Math.max(width, height)) {
+                throw new IllegalArgumentException(
+                        String.format("Ship of length %d does not fit on a %dx%d board", ship.getLength(), width,
+                                height));
+            }
+            squares += ship.getLength();
+        }
+        if (squares > (long) width * height) {
+            throw new IllegalArgumentException(
+                    String.format("Fleet covers %d squares, but the board only has %d", squares,
+                            (long) width * height));
+        }
+    }
+
+    /**
+     * Empties the board and places all ships on it
+     *
+     * @param board  Board to place ships on. Must have the same dimensions as the
+     *               placer
+     * @param ships  Ships to place, in order
+     * @param random Source of randomness, seed it to get reproducible placements
+     * @throws IllegalArgumentException When the fleet can never fit on the board
+     * @throws IllegalStateException    When no placement for the fleet was found
+     *                                  within the maximum amount of attempts
+     */
+    public void placeAll(GameBoard board, List<Battleship> ships, RandomGenerator random)
+            throws IllegalArgumentException, IllegalStateException {
+        if (board.getWidth() != width || board.getHeight() != height) {
+            throw new IllegalArgumentException("Board dimensions does not match the placer");
+        }
+        validateFleet(ships);
+        busy = true;
+        try {
+            for (int attempt = 0; attempt < maxAttempts; attempt++) {
+                board.emptyBoard();
+                if (spacing != null)
+                    spacing.clear();
+                if (tryPlaceAll(board, ships, random))
+                    return;
+            }
+        } finally {
+            busy = false;
+        }
+        throw new IllegalStateException(
+                String.format("Could not place fleet after %d attempts", maxAttempts));
+    }
+
+    private boolean tryPlaceAll(GameBoard board, List<Battleship> ships, RandomGenerator random) {
+        if (candidates == null)
+            return tryDrawAll(board, ships, random);
+        for (Battleship ship : ships) {
+            int count = findCandidates(board, ship.getLength());
+            if (count == 0)
+                return false;
+            int candidate = candidates[random.nextInt(count)];
+            int cell = candidate >>> 1;
+            place(board, cell / height, cell % height, ship, (candidate & 1) == 1);
+        }
+        return true;
+    }
+
+    /**
+     * Places the ships by drawing placements within the board until one is free
+     *
+     * @return Whether every ship was placed within maxDraws draws
+     */
+    private boolean tryDrawAll(GameBoard board, List<Battleship> ships, RandomGenerator random) {
+        for (Battleship ship : ships) {
+            int length = ship.getLength();
+            PlacementIndex index = getPlacementIndex(length);
+            // Placements along the x-axis and the y-axis, as ranges of start squares
+            long alongX = (long) Math.max(0, width - length + 1) * height;
+            long alongY = length == 1 ? 0 : (long) width * Math.max(0, height - length + 1);
+            boolean placed = false;
+            for (int draw = 0; draw < maxDraws && !placed; draw++) {
+                long candidate = random.nextLong(alongX + alongY);
+                boolean placeAlongX = candidate < alongX;
+                int x;
+                int y;
+                if (placeAlongX) {
+                    x = (int) (candidate / height);
+                    y = (int) (candidate % height);
+                } else {
+                    candidate -= alongX;
+                    x = (int) (candidate / (height - length + 1));
+                    y = (int) (candidate % (height - length + 1));
+                }
+                if (isFree(board, index, (long) x * height + y, placeAlongX)) {
+                    place(board, x, y, ship, placeAlongX);
+                    placed = true;
+                }
+            }
+            if (!placed)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Places ships on a bitmask of squares instead of a board, picking uniformly
+     * among the free placements of each ship like placeAll(). Nothing is
+     * allocated, so it can be used to sample many layouts
+     *
+     * @param occupied Squares the ships may not cover, one bit per square (x *
+     *                 height + y). The squares of the placed ships are added
+     * @param lengths  Lengths of the ships to place, in order
+     * @param count    Amount of ships from lengths to place
+     * @param random   Source of randomness
+     * @return Whether every ship was placed. If not, occupied holds the ships
+     *         placed before the one that did not fit
+     * @throws IllegalStateException When the board is too big to list placements
+     *                               on
+     */
+    public boolean placeOnMask(long[] occupied, int[] lengths, int count, RandomGenerator random)
+            throws IllegalStateException {
+        if (candidates == null)
+            throw new IllegalStateException("Board is too big to list placements on");
+        for (int i = 0; i < count; i++) {
+            int length = lengths[i];
+            int found = findCandidates(occupied, length);
+            if (found == 0)
+                return false;
+            int candidate = candidates[random.nextInt(found)];
+            getPlacementIndex(length).mark(occupied, candidate >>> 1, (candidate & 1) == 1);
+        }
+        return true;
+    }
+
+    /**
+     * Fills the candidate buffer with every free placement of a ship
+     *
+     * @return Amount of candidates found
+     */
+    private int findCandidates(GameBoard board, int length) {
+        PlacementIndex index = getPlacementIndex(length);
+        int count = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int cell = x * height + y;
+                if (x + length <= width && isFree(board, index, cell, true))
+                    candidates[count++] = cell * 2 + 1;
+                // A ship of length 1 covers the same square along both axes
+                if (length > 1 && y + length <= height && isFree(board, index, cell, false))
+                    candidates[count++] = cell * 2;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Fills the candidate buffer with every placement of a ship that covers no
+     * occupied square
+     *
+     * @return Amount of candidates found
+     */
+    private int findCandidates(long[] occupied, int length) {
+        PlacementIndex index = getPlacementIndex(length);
+        int count = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int cell = x * height + y;
+                if (x + length <= width && index.isFree(occupied, cell, true))
+                    candidates[count++] = cell * 2 + 1;
+                if (length > 1 && y + length <= height && index.isFree(occupied, cell, false))
+                    candidates[count++] = cell * 2;
+            }
+        }
+        return count;
+    }
+
+    /** @return Whether the ship may be placed at start, see GameBoard.isFree() */
+    private boolean isFree(GameBoard board, PlacementIndex index, long start, boolean placeAlongX) {
+        if (spacing != null)
+            return index.isFree(spacing, start, placeAlongX);
+        return board.isFree(index, start, placeAlongX);
+    }
+
+    /**
+     * Places the ship on the board, and marks the squares it covers or touches
+     * if ships may not touch
+     */
+    private void place(GameBoard board, int x, int y, Battleship ship, boolean placeAlongX) {
+        board.placeBattleShip(x, y, ship, placeAlongX);
+        if (spacing == null)
+            return;
+        int lastX = placeAlongX ? x + ship.getLength() - 1 : x;
+        int lastY = placeAlongX ? y : y + ship.getLength() - 1;
+        for (int i = Math.max(0, x - 1); i <= Math.min(width - 1, lastX + 1); i++) {
+            for (int j = Math.max(0, y - 1); j <= Math.min(height - 1, lastY + 1); j++) {
+                spacing.set((long) i * height + j);
+            }
+        }
+    }
+
+    private PlacementIndex getPlacementIndex(int length) {
+        if (length >= placements.length)
+            placements = Arrays.copyOf(placements, length + 1);
+        if (placements[length] == null)
+            placements[length] = PlacementIndex.of(width, height, length);
+        return placements[length];
+    }
+}
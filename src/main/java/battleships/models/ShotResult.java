@@ -0,0 +1,24 @@
+package battleships.models;
+
+/**
+ * Outcome of a shot. Returned by the resolveShot() methods, which report invalid
+ * shots through these values instead of throwing exceptions
+ */
+public enum ShotResult {
+    MISS,
+    HIT,
+    SUNK,
+    ALREADY_SHOT,
+    OUT_OF_BOUNDS,
+    NO_SHOTS_LEFT;
+
+    /** @return Whether the shot was fired and registered on the board */
+    public boolean isFired() {
+        return this == MISS || this == HIT || this == SUNK;
+    }
+
+    /** @return Whether the shot hit a ship */
+    public boolean isHit() {
+        return this == HIT || this == SUNK;
+    }
+}
@@ -0,0 +1,103 @@
+package battleships.models;
+
+import java.util.Arrays;
+
+/**
+ * Board storage that only keeps the words with a bit set, in an open addressing
+ * hash map from word number to word. Memory grows with the amount of ship and
+ * shot squares instead of the size of the board, so a huge board with a small
+ * fleet takes a few kilobytes.
+ *
+ * Bits are never cleared one by one, so entries are never removed until the
+ * whole storage is cleared
+ */
+final class SparseBoardStorage implements BoardStorage {
+    // Keys are stored as word + 1, so 0 marks an empty slot
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    SparseBoardStorage() {
+        this.keys = new long[16];
+        this.values = new long[16];
+    }
+
+    private SparseBoardStorage(SparseBoardStorage storage) {
+        this.keys = storage.keys.clone();
+        this.values = storage.values.clone();
+        this.size = storage.size;
+    }
+
+    @Override
+    public long getWord(long word) {
+        int slot = find(word + 1);
+        return keys[slot] == 0 ? 0 : values[slot];
+    }
+
+    @Override
+    public void orWord(long word, long bits) {
+        if (bits == 0)
+            return;
+        int slot = find(word + 1);
+        if (keys[slot] == 0) {
+            keys[slot] = word + 1;
+            size++;
+            // Keeps the table at most half full
+            if (size * 2 > keys.length) {
+                values[slot] = bits;
+                grow();
+                return;
+            }
+        }
+        values[slot] |= bits;
+    }
+
+    @Override
+    public void forEachWord(WordVisitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0)
+                visitor.visit(keys[slot] - 1, values[slot]);
+        }
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, 0L);
+        size = 0;
+    }
+
+    @Override
+    public BoardStorage copy() {
+        return new SparseBoardStorage(this);
+    }
+
+    /** @return Amount of words with a bit set */
+    int size() {
+        return size;
+    }
+
+    /** @return Slot holding key, or the empty slot where it belongs */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
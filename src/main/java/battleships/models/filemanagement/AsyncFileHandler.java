@@ -0,0 +1,183 @@
+package battleships.models.filemanagement;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import battleships.models.Game;
+
+/**
+ * Writes saves on a background thread, so the thread saving a game never waits
+ * for the disk. writeGameState() copies the game and queues the copy. If a save
+ * is written again before the writer gets to it, only the newest copy is
+ * written. Deletes are queued the same way, and replace any queued write of the
+ * save.
+ *
+ * Reads wait for queued writes and deletes of the save, so they see the same
+ * state as a synchronous handler would. Call flush() to wait for everything
+ * queued, for example before the application exits. A failure on the writer
+ * thread is thrown from the next call to writeGameState(), deleteSave() or
+ * flush(), whichever comes first
+ */
+public class AsyncFileHandler implements IFileHandler, Closeable {
+    private final IFileHandler fileHandler;
+    private final Thread writer;
+
+    // Queued saves by file name, in the order they were first queued. A null game
+    // means the save is to be deleted
+    private final Map<String, Game> pending = new LinkedHashMap<>();
+    // Save being written by the writer thread, null when idle
+    private String writing;
+    private Exception failure;
+    private boolean closed;
+
+    /**
+     * @param fileHandler Handler the saves are written with. Only the writer thread
+     *                    writes with it, reads are done on the calling thread
+     *                    once queued writes of the save are done
+     */
+    public AsyncFileHandler(IFileHandler fileHandler) {
+        this.fileHandler = fileHandler;
+        this.writer = new Thread(this::writeQueued, "save-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a copy of the game to be written
+     *
+     * @throws IllegalStateException When the handler is closed, or an earlier
+     *                               write or delete failed. The game is still
+     *                               queued in the latter case
+     */
+    @Override
+    public void writeGameState(String filename, Game game) throws IllegalStateException {
+        Game copy = game.copy();
+        queue(filename, copy);
+    }
+
+    /**
+     * Queues the save to be deleted. Queued writes of the save are dropped
+     *
+     * @throws IllegalStateException When the handler is closed, or an earlier
+     *                               write or delete failed. The delete is still
+     *                               queued in the latter case
+     */
+    @Override
+    public void deleteSave(String filename) throws IllegalStateException {
+        queue(filename, null);
+    }
+
+    private synchronized void queue(String filename, Game game) throws IllegalStateException {
+        if (closed)
+            throw new IllegalStateException("Cannot save with a closed file handler");
+        pending.put(filename, game);
+        notifyAll();
+        if (failure != null) {
+            Exception failed = failure;
+            failure = null;
+            throw new IllegalStateException("Could not save in the background: " + failed.getMessage(), failed);
+        }
+    }
+
+    @Override
+    public Game readGameState(String filename) throws FileNotFoundException, IllegalStateException {
+        awaitSave(filename);
+        return fileHandler.readGameState(filename);
+    }
+
+    @Override
+    public boolean gameIsSaved(String filename) throws FileNotFoundException {
+        awaitSave(filename);
+        return fileHandler.gameIsSaved(filename);
+    }
+
+    /** Waits until the save is neither queued nor being written */
+    private synchronized void awaitSave(String filename) {
+        boolean interrupted = false;
+        while (pending.containsKey(filename) || filename.equals(writing)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Waits until every queued write and delete is done
+     *
+     * @throws IOException When a write or delete failed since the last flush
+     */
+    public synchronized void flush() throws IOException, InterruptedException {
+        while (!pending.isEmpty() || writing != null) {
+            wait();
+        }
+        Exception failed = failure;
+        failure = null;
+        if (failed instanceof IOException)
+            throw (IOException) failed;
+        if (failed instanceof RuntimeException)
+            throw (RuntimeException) failed;
+    }
+
+    /**
+     * Writes everything queued and stops the writer thread
+     *
+     * @throws IOException When a write or delete failed since the last flush
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeQueued() {
+        while (true) {
+            String filename;
+            Game game;
+            synchronized (this) {
+                writing = null;
+                notifyAll();
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Only close() stops the writer, so queued saves are not lost
+                    }
+                }
+                if (pending.isEmpty())
+                    return;
+                Iterator<Map.Entry<String, Game>> oldest = pending.entrySet().iterator();
+                Map.Entry<String, Game> entry = oldest.next();
+                oldest.remove();
+                filename = entry.getKey();
+                game = entry.getValue();
+                writing = filename;
+            }
+            try {
+                if (game == null)
+                    fileHandler.deleteSave(filename);
+                else
+                    fileHandler.writeGameState(filename, game);
+            } catch (Exception e) {
+                synchronized (this) {
+                    failure = e;
+                }
+            }
+        }
+    }
+}
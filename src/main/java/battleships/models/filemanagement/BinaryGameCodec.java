@@ -0,0 +1,105 @@
+package battleships.models.filemanagement;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import battleships.models.Game;
+import battleships.models.GameBoard;
+import battleships.models.GameRules;
+import battleships.models.GameUtils;
+import battleships.models.Player;
+
+/**
+ * Binary save format. All numbers are big endian
+ *
+ * <pre>
+ * int     magic number, "BSHP"
+ * byte    version
+ * int     board width
+ * int     board height
+ * int     shots per turn, from version 2
+ *         for player 1 and then player 2:
+ * long[]  ship mask of friendly board, (width * height + 63) / 64 words
+ * long[]  hit mask of friendly board, same amount of words
+ *         for player 1 and then player 2:
+ * UTF     name
+ * int     shots left
+ * byte    1 if player 1 is the current player, 2 if player 2 is
+ * </pre>
+ *
+ * The masks are the masks of GameBoard, so a 6x6 board takes two longs.
+ * Version 1 saves are read with the default shots per turn
+ */
+final class BinaryGameCodec {
+    static final int magic = 0x42534850;
+    static final byte version = 2;
+
+    private BinaryGameCodec() {
+    }
+
+    static void write(DataOutput out, Game game) throws IOException {
+        out.writeInt(magic);
+        out.writeByte(version);
+        out.writeInt(game.getBoardWidth());
+        out.writeInt(game.getBoardHeight());
+        out.writeInt(game.getRules().getShotsPerTurn());
+        writeBoard(out, game.getPlayer1().getFriendlyBoard());
+        writeBoard(out, game.getPlayer2().getFriendlyBoard());
+        out.writeUTF(game.getPlayer1().getName());
+        out.writeInt(game.getPlayer1().getShotsLeft());
+        out.writeUTF(game.getPlayer2().getName());
+        out.writeInt(game.getPlayer2().getShotsLeft());
+        out.writeByte(game.getCurrentPlayer() == game.getPlayer1() ? 1 : 2);
+    }
+
+    private static void writeBoard(DataOutput out, GameBoard board) throws IOException {
+        for (long word : board.getShipMask()) {
+            out.writeLong(word);
+        }
+        for (long word : board.getHitMask()) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * Reads a game written by write(), including the magic number
+     *
+     * @throws IllegalStateException When the data is not a supported version of
+     *                               the format
+     */
+    static Game read(DataInput in) throws IOException, IllegalStateException {
+        if (in.readInt() != magic)
+            throw new IllegalStateException("Save is not in the binary format");
+        byte fileVersion = in.readByte();
+        if (fileVersion < 1 || fileVersion > version)
+            throw new IllegalStateException(String.format("Unsupported save version %d", fileVersion));
+        int width = in.readInt();
+        int height = in.readInt();
+        GameRules rules = GameUtils.DEFAULT_RULES.withBoardSize(width, height);
+        if (fileVersion >= 2)
+            rules = rules.withShotsPerTurn(in.readInt());
+        GameBoard board1 = readBoard(in, width, height);
+        GameBoard board2 = readBoard(in, width, height);
+        Player player1 = new Player(in.readUTF(), board1, board2, rules.getShotsPerTurn());
+        player1.setShots(in.readInt());
+        Player player2 = new Player(in.readUTF(), board2, board1, rules.getShotsPerTurn());
+        player2.setShots(in.readInt());
+        Player currentPlayer = in.readByte() == 1 ? player1 : player2;
+        return new Game(player1, player2, currentPlayer, rules);
+    }
+
+    private static GameBoard readBoard(DataInput in, int width, int height) throws IOException {
+        GameBoard board = new GameBoard(width, height);
+        long[] ships = board.getShipMask();
+        long[] hits = board.getHitMask();
+        for (int i = 0; i < ships.length; i++) {
+            ships[i] = in.readLong();
+        }
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = in.readLong();
+        }
+        board.loadMasks(ships, hits);
+        return board;
+    }
+}
@@ -1,12 +1,24 @@
 package battleships.models.filemanagement;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.util.Scanner;
 
 import battleships.models.Game;
 import battleships.models.GameBoard;
+import battleships.models.GameRules;
+import battleships.models.GameUtils;
 import battleships.models.Player;
 import battleships.models.Position;
 
@@ -17,6 +29,8 @@ public class FileHandler implements IFileHandler {
         File file = validateFileName(filename);
         if (!gameIsSaved(filename))
             throw new IllegalStateException("No game is saved");
+        if (isBinary(file))
+            return readBinaryGameState(file);
         try (Scanner scanner = new Scanner(file)) {
 
             int boardWidth = 6;
@@ -26,6 +40,7 @@ public class FileHandler implements IFileHandler {
             Player player1 = new Player("Player 1", board1, board2);
             Player player2 = new Player("Player 2", board2, board1);
             Player currentPlayer = player1;
+            GameRules rules = GameUtils.DEFAULT_RULES;
 
             int lineIndex = 0;
             while (scanner.hasNextLine()) {
@@ -33,20 +48,45 @@ public class FileHandler implements IFileHandler {
                 if (lineIndex == 0) {
                     boardWidth = Integer.parseInt(params[0]);
                     boardHeight = Integer.parseInt(params[1]);
+                    rules = rules.withBoardSize(boardWidth, boardHeight);
+                    // Shots per turn is left out when it is the default
+                    if (params.length > 2)
+                        rules = rules.withShotsPerTurn(Integer.parseInt(params[2]));
                 } else if (lineIndex == 1) {
                     board1 = deserializeBoard(params[0], boardWidth, boardHeight);
                 } else if (lineIndex == 2) {
                     board2 = deserializeBoard(params[0], boardWidth, boardHeight);
                 } else if (lineIndex == 3) {
-                    player1 = new Player(params[0], board1, board2);
+                    player1 = new Player(params[0], board1, board2, rules.getShotsPerTurn());
                     player1.setShots(Integer.parseInt(params[1]));
-                    player2 = new Player(params[3], board2, board1);
+                    player2 = new Player(params[3], board2, board1, rules.getShotsPerTurn());
                     player2.setShots(Integer.parseInt(params[4]));
                     currentPlayer = Boolean.valueOf(params[2]) ? player1 : player2;
                 }
                 lineIndex++;
             }
-            return new Game(player1, player2, currentPlayer, boardWidth, boardHeight);
+            return new Game(player1, player2, currentPlayer, rules);
+        }
+    }
+
+    /** Checks the magic number at the start of the file */
+    private boolean isBinary(File file) throws FileNotFoundException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return file.length() >= 4 && in.readInt() == BinaryGameCodec.magic;
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Game readBinaryGameState(File file) throws FileNotFoundException, IllegalStateException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return BinaryGameCodec.read(in);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -73,20 +113,40 @@ public class FileHandler implements IFileHandler {
         return pos;
     }
 
+    /**
+     * Writes the game in the format matching the extension of filename, see
+     * SaveFormat. Names without extension are saved as text
+     */
     @Override
     public void writeGameState(String filename, Game game) throws FileNotFoundException {
         File file = validateFileName(filename);
-        try (PrintWriter writer = new PrintWriter(file)) {
-            writer.println(game.serialize());
+        if (SaveFormat.forFileName(filename) == SaveFormat.BINARY) {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+                BinaryGameCodec.write(out, game);
+            } catch (FileNotFoundException e) {
+                throw e;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+        // The game is streamed into the buffer instead of being serialized to one
+        // String first. Unlike PrintWriter, BufferedWriter throws when a write
+        // fails, so a full disk is not reported as a successful save
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            game.serializeTo(writer);
+            writer.newLine();
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
     @Override
     public boolean gameIsSaved(String filename) throws FileNotFoundException {
         File file = validateFileName(filename);
-        try (Scanner scanner = new Scanner(file)) {
-            return scanner.hasNextLine();
-        }
+        return file.length() > 0;
     }
 
     @Override
@@ -105,7 +165,13 @@ public class FileHandler implements IFileHandler {
         return file;
     }
 
+    /**
+     * @param filename Name of save. Gets the .txt extension unless it already
+     *                 has the extension of a SaveFormat
+     */
     public File getReceiptFile(String filename) {
+        if (SaveFormat.hasExtension(filename))
+            return new File("target/classes/battleships/savedgame/" + filename);
         return new File("target/classes/battleships/savedgame/" + filename + ".txt");
     }
 }
@@ -0,0 +1,383 @@
+package battleships.models.filemanagement;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import battleships.models.Game;
+import battleships.models.GameBoard;
+import battleships.models.Player;
+
+/**
+ * Saves games as append-only journals, one file per save name. The first write
+ * of a game appends a full snapshot in the binary format of BinaryGameCodec.
+ * Later writes find the shots fired since the previous write through the shot
+ * log of each board, and append one small fixed size record per shot, so the
+ * cost of saving after a move does not depend on board size. A new snapshot is
+ * appended every snapshotInterval records, and loading replays the records after
+ * the latest snapshot. When a journal grows past maxJournalBytes it is compacted
+ * to a single snapshot.
+ *
+ * <pre>
+ * int     magic number, "BSHJ"
+ * int     version
+ *         then records, each starting with a 16 byte header:
+ * byte    type, SNAPSHOT, SHOT or STATE
+ * byte    player: shooter of a SHOT, current player of a STATE
+ * short   unused
+ * int     a: x of a SHOT, player 1 shots left of a STATE, payload bytes of a
+ *         SNAPSHOT
+ * int     b: y of a SHOT, player 2 shots left of a STATE
+ * int     c: shooter's shots left after a SHOT
+ *         a SNAPSHOT header is followed by its payload
+ * </pre>
+ *
+ * All methods are synchronized, so one handler can be shared between threads
+ */
+public class JournalFileHandler implements IFileHandler, Closeable {
+    private static final int magic = 0x4253484a;
+    private static final int version = 1;
+    private static final int fileHeaderSize = 8;
+    private static final int recordSize = 16;
+
+    static final byte snapshotRecord = 1;
+    static final byte shotRecord = 2;
+    static final byte stateRecord = 3;
+
+    private final File folder;
+    private final int snapshotInterval;
+    private final long maxJournalBytes;
+
+    // What has been written to each journal opened by this handler
+    private final Map<String, Journal> journals = new HashMap<>();
+    private final ByteBuffer record = ByteBuffer.allocate(recordSize);
+
+    /**
+     * What a journal contains, so the next write knows what is new
+     */
+    private static class Journal {
+        final FileChannel channel;
+        int width;
+        int height;
+        String player1Name;
+        String player2Name;
+        // Ship hashes of player 1's and player 2's friendly board, which tell
+        // a new game from the one in the journal
+        long board1Ships;
+        long board2Ships;
+        // Shots in the shot log of player 1's and player 2's friendly board
+        int board1Shots;
+        int board2Shots;
+        int player1ShotsLeft;
+        int player2ShotsLeft;
+        boolean player1IsCurrent;
+        int recordsSinceSnapshot;
+
+        Journal(FileChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * @param folder           Folder to keep the journals in
+     * @param snapshotInterval Amount of records between each snapshot
+     * @param maxJournalBytes  Size a journal is compacted at
+     */
+    public JournalFileHandler(File folder, int snapshotInterval, long maxJournalBytes)
+            throws IllegalArgumentException {
+        if (snapshotInterval < 1 || maxJournalBytes < 1)
+            throw new IllegalArgumentException("Snapshot interval and max journal size must be positive");
+        this.folder = folder;
+        this.snapshotInterval = snapshotInterval;
+        this.maxJournalBytes = maxJournalBytes;
+    }
+
+    /** Journals in the save folder used by FileHandler */
+    public JournalFileHandler() {
+        this(new File("target/classes/battleships/savedgame"), 256, 1 << 20);
+    }
+
+    /**
+     * Appends what changed since the previous write of this save: a record per
+     * new shot and a record if the current player or shots left changed. A full
+     * snapshot is written instead if the game does not continue from the previous
+     * write, for example a new game or a board that was emptied
+     */
+    @Override
+    public synchronized void writeGameState(String filename, Game game) {
+        try {
+            Journal journal = journals.get(filename);
+            if (journal == null || !continuesFrom(journal, game)) {
+                startJournal(filename, game);
+                return;
+            }
+            Player player1 = game.getPlayer1();
+            Player player2 = game.getPlayer2();
+            if (player2.getFriendlyBoard().getShotCount() != journal.board2Shots)
+                journal.player1ShotsLeft = player1.getShotsLeft();
+            if (player1.getFriendlyBoard().getShotCount() != journal.board1Shots)
+                journal.player2ShotsLeft = player2.getShotsLeft();
+            appendShots(journal, game);
+            boolean player1IsCurrent = game.getCurrentPlayer() == player1;
+            if (journal.player1ShotsLeft != player1.getShotsLeft() || journal.player2ShotsLeft != player2.getShotsLeft()
+                    || journal.player1IsCurrent != player1IsCurrent) {
+                appendRecord(journal, stateRecord, player1IsCurrent ? 1 : 2, player1.getShotsLeft(),
+                        player2.getShotsLeft(), 0);
+                journal.player1ShotsLeft = player1.getShotsLeft();
+                journal.player2ShotsLeft = player2.getShotsLeft();
+                journal.player1IsCurrent = player1IsCurrent;
+            }
+            if (journal.recordsSinceSnapshot >= snapshotInterval) {
+                if (journal.channel.size() >= maxJournalBytes)
+                    startJournal(filename, game);
+                else
+                    appendSnapshot(journal, game);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean continuesFrom(Journal journal, Game game) {
+        GameBoard board1 = game.getPlayer1().getFriendlyBoard();
+        GameBoard board2 = game.getPlayer2().getFriendlyBoard();
+        // The ship layouts tell a new game with the same names from this one
+        return !game.getIsPlacementPhase() && journal.width == game.getBoardWidth()
+                && journal.height == game.getBoardHeight() && journal.player1Name.equals(game.getPlayer1().getName())
+                && journal.player2Name.equals(game.getPlayer2().getName())
+                && board1.getShipHash() == journal.board1Ships && board2.getShipHash() == journal.board2Ships
+                && board1.getShotCount() >= journal.board1Shots && board2.getShotCount() >= journal.board2Shots;
+    }
+
+    /**
+     * Appends a record for each shot fired since the previous write, in the
+     * order they were fired as told by Game.getShooter(). Shots the game does not
+     * know the order of are appended after, player by player
+     */
+    private void appendShots(Journal journal, Game game) throws IOException {
+        Player player1 = game.getPlayer1();
+        Player player2 = game.getPlayer2();
+        int board1Shots = player1.getFriendlyBoard().getShotCount();
+        int board2Shots = player2.getFriendlyBoard().getShotCount();
+        for (int shot = journal.board1Shots + journal.board2Shots; shot < board1Shots + board2Shots; shot++) {
+            int shooter = game.getShooter(shot);
+            if (shooter == 1 && journal.board2Shots < board2Shots)
+                journal.board2Shots = appendShot(journal, player1, 1, journal.board2Shots);
+            else if (shooter == 2 && journal.board1Shots < board1Shots)
+                journal.board1Shots = appendShot(journal, player2, 2, journal.board1Shots);
+            else
+                break;
+        }
+        while (journal.board2Shots < board2Shots) {
+            journal.board2Shots = appendShot(journal, player1, 1, journal.board2Shots);
+        }
+        while (journal.board1Shots < board1Shots) {
+            journal.board1Shots = appendShot(journal, player2, 2, journal.board1Shots);
+        }
+    }
+
+    /**
+     * Appends a record for shot number i on the enemy board of the shooter
+     *
+     * @return i + 1, the new amount of shots in the journal for the enemy board
+     */
+    private int appendShot(Journal journal, Player shooter, int shooterNumber, int i) throws IOException {
+        GameBoard board = shooter.getEnemyBoard();
+        long square = board.getShotSquare(i);
+        // Shots left after each shot, ending at the shooter's current amount
+        int shotsLeft = Math.min(shooter.getShotsLeft() + board.getShotCount() - 1 - i, shooter.getMaxShots());
+        appendRecord(journal, shotRecord, shooterNumber, (int) (square / board.getHeight()),
+                (int) (square % board.getHeight()), shotsLeft);
+        return i + 1;
+    }
+
+    /** Replaces the journal of filename with one holding a snapshot of game */
+    private void startJournal(String filename, Game game) throws IOException {
+        File file = getJournalFile(filename);
+        File folder = file.getParentFile();
+        if (!folder.isDirectory() && !folder.mkdirs())
+            throw new IOException("Could not create save folder");
+        Journal old = journals.remove(filename);
+        if (old != null)
+            old.channel.close();
+
+        // Written to a temporary file and moved in place, so a crash leaves either
+        // the old or the new journal
+        File temporary = new File(file.getPath() + ".tmp");
+        FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        Journal journal = new Journal(channel);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(fileHeaderSize);
+            header.putInt(magic).putInt(version).flip();
+            writeFully(channel, header);
+            appendSnapshot(journal, game);
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        journal = new Journal(FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+        remember(journal, game);
+        journals.put(filename, journal);
+    }
+
+    private void appendSnapshot(Journal journal, Game game) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        BinaryGameCodec.write(new DataOutputStream(payload), game);
+        appendRecord(journal, snapshotRecord, 0, payload.size(), 0, 0);
+        writeFully(journal.channel, ByteBuffer.wrap(payload.toByteArray()));
+        remember(journal, game);
+    }
+
+    private void remember(Journal journal, Game game) {
+        journal.width = game.getBoardWidth();
+        journal.height = game.getBoardHeight();
+        journal.player1Name = game.getPlayer1().getName();
+        journal.player2Name = game.getPlayer2().getName();
+        journal.board1Ships = game.getPlayer1().getFriendlyBoard().getShipHash();
+        journal.board2Ships = game.getPlayer2().getFriendlyBoard().getShipHash();
+        journal.board1Shots = game.getPlayer1().getFriendlyBoard().getShotCount();
+        journal.board2Shots = game.getPlayer2().getFriendlyBoard().getShotCount();
+        journal.player1ShotsLeft = game.getPlayer1().getShotsLeft();
+        journal.player2ShotsLeft = game.getPlayer2().getShotsLeft();
+        journal.player1IsCurrent = game.getCurrentPlayer() == game.getPlayer1();
+        journal.recordsSinceSnapshot = 0;
+    }
+
+    private void appendRecord(Journal journal, byte type, int player, int a, int b, int c) throws IOException {
+        record.clear();
+        record.put(type).put((byte) player).putShort((short) 0).putInt(a).putInt(b).putInt(c).flip();
+        writeFully(journal.channel, record);
+        journal.recordsSinceSnapshot++;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Loads the latest snapshot in the journal and replays the records after it
+     */
+    @Override
+    public synchronized Game readGameState(String filename) throws IllegalStateException {
+        return replay(filename, new ArrayList<>());
+    }
+
+    /**
+     * Lists every shot in the journal, since it was started or last compacted
+     *
+     * @return Shots in the order they were fired, as { shooter (1 or 2), x, y }
+     */
+    public synchronized List<int[]> readShotHistory(String filename) throws IllegalStateException {
+        List<int[]> shots = new ArrayList<>();
+        replay(filename, shots);
+        return shots;
+    }
+
+    /**
+     * Replays the journal of filename
+     *
+     * @param shots Every shot record in the journal is added here
+     * @return The game at the end of the journal
+     */
+    private Game replay(String filename, List<int[]> shots) throws IllegalStateException {
+        byte[] bytes;
+        try {
+            File file = getJournalFile(filename);
+            if (!file.exists() || file.length() == 0)
+                throw new IllegalStateException("No game is saved");
+            bytes = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (in.getInt() != magic || in.getInt() != version)
+            throw new IllegalStateException("Save is not a supported journal");
+
+        Game game = null;
+        Player current = null;
+        // Only complete records are replayed, a record cut off by a crash is ignored
+        while (in.remaining() >= recordSize) {
+            byte type = in.get();
+            int player = in.get();
+            in.getShort();
+            int a = in.getInt();
+            int b = in.getInt();
+            int c = in.getInt();
+            if (type == snapshotRecord) {
+                if (in.remaining() < a)
+                    break;
+                try {
+                    game = BinaryGameCodec.read(new DataInputStream(new ByteArrayInputStream(bytes, in.position(), a)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                in.position(in.position() + a);
+                current = game.getCurrentPlayer();
+            } else if (game == null) {
+                throw new IllegalStateException("Journal does not start with a snapshot");
+            } else if (type == shotRecord) {
+                Player shooter = player == 1 ? game.getPlayer1() : game.getPlayer2();
+                shooter.getEnemyBoard().fireShot(a, b);
+                shooter.setShots(c);
+                shots.add(new int[] { player, a, b });
+            } else if (type == stateRecord) {
+                current = player == 1 ? game.getPlayer1() : game.getPlayer2();
+                game.getPlayer1().setShots(a);
+                game.getPlayer2().setShots(b);
+            }
+        }
+        if (game == null)
+            throw new IllegalStateException("No game is saved");
+        return new Game(game.getPlayer1(), game.getPlayer2(), current, game.getRules());
+    }
+
+    @Override
+    public synchronized boolean gameIsSaved(String filename) {
+        File file = getJournalFile(filename);
+        return file.exists() && file.length() > 0;
+    }
+
+    @Override
+    public synchronized void deleteSave(String filename) {
+        try {
+            Journal journal = journals.remove(filename);
+            if (journal != null)
+                journal.channel.close();
+            Files.deleteIfExists(getJournalFile(filename).toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public File getJournalFile(String filename) {
+        return new File(folder, filename + ".bsj");
+    }
+
+    /** Closes all open journals */
+    @Override
+    public synchronized void close() throws IOException {
+        for (Journal journal : journals.values()) {
+            journal.channel.close();
+        }
+        journals.clear();
+    }
+}
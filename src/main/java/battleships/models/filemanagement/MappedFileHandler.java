@@ -0,0 +1,366 @@
+package battleships.models.filemanagement;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import battleships.models.Game;
+import battleships.models.GameBoard;
+import battleships.models.GameRules;
+import battleships.models.GameUtils;
+import battleships.models.Player;
+
+/**
+ * Stores many saved games in one memory-mapped file of fixed size slots, one
+ * slot per save name. Writing a game only touches the parts of its slot that
+ * changed, which after a shot is usually a single word of a hit mask. Changes
+ * are forced to disk in batches, every forceInterval writes or when flush() is
+ * called.
+ *
+ * <pre>
+ * File header, 64 bytes:
+ * int     magic number, "BSMM"
+ * int     version
+ * int     slot count
+ * int     max squares per board
+ *
+ * Slot, slotHeaderSize bytes followed by four masks:
+ * byte    1 if the slot is in use
+ * byte    1 if player 1 is the current player, 2 if player 2 is
+ * int     board width, at offset 4
+ * int     board height
+ * int     player 1 shots left
+ * int     player 2 shots left
+ * names   save name, player 1 name and player 2 name, each a short length
+ *         followed by nameBytes bytes of UTF-8, from offset 20
+ * int     shots per turn, at offset 220. 0 in slots written before it was
+ *         stored, which are read with the default
+ * long[]  ship and hit mask of player 1's board, then of player 2's board,
+ *         each maskWords words, from offset slotHeaderSize
+ * </pre>
+ *
+ * All methods are synchronized, so one handler can be shared between threads
+ */
+public class MappedFileHandler implements IFileHandler, Closeable {
+    private static final int magic = 0x42534d4d;
+    private static final int version = 1;
+    private static final int fileHeaderSize = 64;
+
+    // Longest save or player name, in bytes of UTF-8
+    private static final int nameBytes = 64;
+    private static final int inUseOffset = 0;
+    private static final int currentPlayerOffset = 1;
+    private static final int widthOffset = 4;
+    private static final int heightOffset = 8;
+    private static final int shotsOffset = 12;
+    private static final int namesOffset = 20;
+    private static final int shotsPerTurnOffset = 220;
+    private static final int slotHeaderSize = 224;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotCount;
+    private final int maxSquares;
+    private final int maskWords;
+    private final int slotSize;
+    private final int forceInterval;
+
+    // Slot of every save name in use
+    private final Map<String, Integer> slots = new HashMap<>();
+    // Names last written to each slot, so unchanged names are not written again
+    private final String[][] slotNames;
+
+    // Bytes changed since the last force
+    private int dirtyFrom = Integer.MAX_VALUE;
+    private int dirtyTo;
+    private int writesSinceForce;
+
+    /**
+     * Opens the store in file, or creates it if the file does not exist
+     *
+     * @param file          File to map
+     * @param slotCount     Amount of saves the store can hold
+     * @param maxSquares    Largest board, in squares, the store can hold
+     * @param forceInterval Amount of writes between each time changes are forced
+     *                      to disk
+     * @throws IllegalArgumentException When an existing file was created with
+     *                                  other slot count or max squares, or the
+     *                                  store would be larger than 2 GB
+     */
+    public MappedFileHandler(File file, int slotCount, int maxSquares, int forceInterval)
+            throws IOException, IllegalArgumentException {
+        if (slotCount < 1 || maxSquares < 1 || forceInterval < 1)
+            throw new IllegalArgumentException("Slot count, max squares and force interval must be positive");
+        this.slotCount = slotCount;
+        this.maxSquares = maxSquares;
+        this.maskWords = (maxSquares + 63) >>> 6;
+        this.slotSize = slotHeaderSize + 4 * 8 * maskWords;
+        this.forceInterval = forceInterval;
+        long size = fileHeaderSize + (long) slotCount * slotSize;
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Save store cannot be larger than 2 GB");
+
+        boolean isNew = !file.exists() || file.length() == 0;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (!isNew && channel.size() != size)
+                throw new IllegalArgumentException("Save store file has a different size than requested");
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            this.slotNames = new String[slotCount][3];
+            if (isNew)
+                writeFileHeader();
+            else
+                readFileHeader();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void writeFileHeader() {
+        buffer.putInt(0, magic);
+        buffer.putInt(4, version);
+        buffer.putInt(8, slotCount);
+        buffer.putInt(12, maxSquares);
+        markDirty(0, fileHeaderSize);
+        force();
+    }
+
+    private void readFileHeader() throws IllegalArgumentException {
+        if (buffer.getInt(0) != magic || buffer.getInt(4) != version)
+            throw new IllegalArgumentException("File is not a save store");
+        if (buffer.getInt(8) != slotCount || buffer.getInt(12) != maxSquares)
+            throw new IllegalArgumentException("Save store was created with other slot count or max squares");
+        for (int slot = 0; slot < slotCount; slot++) {
+            int offset = slotOffset(slot);
+            if (buffer.get(offset + inUseOffset) == 1) {
+                for (int i = 0; i < 3; i++) {
+                    slotNames[slot][i] = readName(offset + namesOffset + i * (2 + nameBytes));
+                }
+                slots.put(slotNames[slot][0], slot);
+            }
+        }
+    }
+
+    @Override
+    public synchronized Game readGameState(String filename) throws IllegalStateException {
+        Integer slot = slots.get(filename);
+        if (slot == null)
+            throw new IllegalStateException("No game is saved");
+        int offset = slotOffset(slot);
+        int width = buffer.getInt(offset + widthOffset);
+        int height = buffer.getInt(offset + heightOffset);
+        GameRules rules = GameUtils.DEFAULT_RULES.withBoardSize(width, height);
+        int shotsPerTurn = buffer.getInt(offset + shotsPerTurnOffset);
+        if (shotsPerTurn != 0)
+            rules = rules.withShotsPerTurn(shotsPerTurn);
+        int masksOffset = offset + slotHeaderSize;
+        GameBoard board1 = readBoard(masksOffset, width, height);
+        GameBoard board2 = readBoard(masksOffset + 2 * 8 * maskWords, width, height);
+        Player player1 = new Player(slotNames[slot][1], board1, board2, rules.getShotsPerTurn());
+        player1.setShots(buffer.getInt(offset + shotsOffset));
+        Player player2 = new Player(slotNames[slot][2], board2, board1, rules.getShotsPerTurn());
+        player2.setShots(buffer.getInt(offset + shotsOffset + 4));
+        Player currentPlayer = buffer.get(offset + currentPlayerOffset) == 1 ? player1 : player2;
+        return new Game(player1, player2, currentPlayer, rules);
+    }
+
+    private GameBoard readBoard(int offset, int width, int height) {
+        GameBoard board = new GameBoard(width, height);
+        long[] ships = new long[board.getMaskWords()];
+        long[] hits = new long[board.getMaskWords()];
+        for (int i = 0; i < ships.length; i++) {
+            ships[i] = buffer.getLong(offset + i * 8);
+            hits[i] = buffer.getLong(offset + (maskWords + i) * 8);
+        }
+        board.loadMasks(ships, hits);
+        return board;
+    }
+
+    /**
+     * Writes the game to the slot of filename, taking a free slot if filename has
+     * none. Only the parts of the slot that differ from the game are written
+     *
+     * @throws IllegalArgumentException When the boards or names do not fit in a
+     *                                  slot
+     * @throws IllegalStateException    When every slot is in use
+     */
+    @Override
+    public synchronized void writeGameState(String filename, Game game)
+            throws IllegalArgumentException, IllegalStateException {
+        if ((long) game.getBoardWidth() * game.getBoardHeight() > maxSquares)
+            throw new IllegalArgumentException(
+                    String.format("Save store only holds boards of up to %d squares", maxSquares));
+        // Checked before a slot is taken or changed, so a name that does not fit
+        // leaves the store as it was
+        validateName(filename);
+        validateName(game.getPlayer1().getName());
+        validateName(game.getPlayer2().getName());
+        Integer slot = slots.get(filename);
+        boolean isNew = slot == null;
+        if (isNew)
+            slot = allocateSlot(filename);
+        int offset = slotOffset(slot);
+
+        writeInt(offset + widthOffset, game.getBoardWidth(), isNew);
+        writeInt(offset + heightOffset, game.getBoardHeight(), isNew);
+        writeInt(offset + shotsOffset, game.getPlayer1().getShotsLeft(), isNew);
+        writeInt(offset + shotsOffset + 4, game.getPlayer2().getShotsLeft(), isNew);
+        writeInt(offset + shotsPerTurnOffset, game.getRules().getShotsPerTurn(), isNew);
+        byte currentPlayer = (byte) (game.getCurrentPlayer() == game.getPlayer1() ? 1 : 2);
+        if (isNew || buffer.get(offset + currentPlayerOffset) != currentPlayer) {
+            buffer.put(offset + currentPlayerOffset, currentPlayer);
+            markDirty(offset + currentPlayerOffset, 1);
+        }
+        writeName(slot, 0, filename);
+        writeName(slot, 1, game.getPlayer1().getName());
+        writeName(slot, 2, game.getPlayer2().getName());
+
+        int masksOffset = offset + slotHeaderSize;
+        writeBoard(masksOffset, game.getPlayer1().getFriendlyBoard(), isNew);
+        writeBoard(masksOffset + 2 * 8 * maskWords, game.getPlayer2().getFriendlyBoard(), isNew);
+
+        if (isNew) {
+            // Marked in use last, so a crash never leaves a half written slot in use
+            buffer.put(offset + inUseOffset, (byte) 1);
+            markDirty(offset + inUseOffset, 1);
+        }
+        if (++writesSinceForce >= forceInterval)
+            force();
+    }
+
+    private int allocateSlot(String filename) throws IllegalStateException {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (buffer.get(slotOffset(slot) + inUseOffset) == 0) {
+                slots.put(filename, slot);
+                slotNames[slot] = new String[3];
+                return slot;
+            }
+        }
+        throw new IllegalStateException(String.format("All %d save slots are in use", slotCount));
+    }
+
+    private void writeBoard(int offset, GameBoard board, boolean writeAll) {
+        for (int i = 0; i < board.getMaskWords(); i++) {
+            writeLong(offset + i * 8, board.getShipWord(i), writeAll);
+            writeLong(offset + (maskWords + i) * 8, board.getHitWord(i), writeAll);
+        }
+    }
+
+    private void writeInt(int offset, int value, boolean writeAll) {
+        if (writeAll || buffer.getInt(offset) != value) {
+            buffer.putInt(offset, value);
+            markDirty(offset, 4);
+        }
+    }
+
+    private void writeLong(int offset, long value, boolean writeAll) {
+        if (writeAll || buffer.getLong(offset) != value) {
+            buffer.putLong(offset, value);
+            markDirty(offset, 8);
+        }
+    }
+
+    /**
+     * Writes name number i of the slot, unless it is already there
+     */
+    private void writeName(int slot, int i, String name) {
+        if (name.equals(slotNames[slot][i]))
+            return;
+        // Validated by writeGameState()
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int offset = slotOffset(slot) + namesOffset + i * (2 + nameBytes);
+        buffer.putShort(offset, (short) bytes.length);
+        buffer.put(offset + 2, bytes);
+        markDirty(offset, 2 + bytes.length);
+        slotNames[slot][i] = name;
+    }
+
+    private static void validateName(String name) throws IllegalArgumentException {
+        if (name.getBytes(StandardCharsets.UTF_8).length > nameBytes)
+            throw new IllegalArgumentException(
+                    String.format("Names in the save store cannot be longer than %d bytes", nameBytes));
+    }
+
+    private String readName(int offset) {
+        byte[] bytes = new byte[buffer.getShort(offset)];
+        buffer.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized boolean gameIsSaved(String filename) {
+        return slots.containsKey(filename);
+    }
+
+    /**
+     * Frees the slot of filename. Does nothing if no game is saved under the name
+     */
+    @Override
+    public synchronized void deleteSave(String filename) {
+        Integer slot = slots.remove(filename);
+        if (slot == null)
+            return;
+        int offset = slotOffset(slot);
+        buffer.put(offset + inUseOffset, (byte) 0);
+        markDirty(offset + inUseOffset, 1);
+        slotNames[slot] = new String[3];
+        force();
+    }
+
+    /** Forces all changes to disk now */
+    public synchronized void flush() {
+        force();
+    }
+
+    private void force() {
+        if (dirtyFrom < dirtyTo)
+            buffer.force(dirtyFrom, dirtyTo - dirtyFrom);
+        dirtyFrom = Integer.MAX_VALUE;
+        dirtyTo = 0;
+        writesSinceForce = 0;
+    }
+
+    private void markDirty(int offset, int length) {
+        dirtyFrom = Math.min(dirtyFrom, offset);
+        dirtyTo = Math.max(dirtyTo, offset + length);
+    }
+
+    private int slotOffset(int slot) {
+        return fileHeaderSize + slot * slotSize;
+    }
+
+    /** @return Amount of saves the store can hold */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /** Forces all changes to disk and closes the file */
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    /**
+     * Opens the store in the save folder used by FileHandler
+     *
+     * @param storeName Name of the store file, without extension
+     */
+    public static MappedFileHandler inSaveFolder(String storeName, int slotCount, int maxSquares,
+            int forceInterval) throws IOException {
+        File file = new File("target/classes/battleships/savedgame/" + storeName + ".bsm");
+        File folder = file.getParentFile();
+        if (!folder.isDirectory() && !folder.mkdirs())
+            throw new FileNotFoundException("Could not create save folder");
+        return new MappedFileHandler(file, slotCount, maxSquares, forceInterval);
+    }
+}
@@ -0,0 +1,44 @@
+package battleships.models.filemanagement;
+
+/**
+ * File formats a game can be saved in. The format is chosen from the extension
+ * of the file name when saving, and from the magic number at the start of the
+ * file when loading
+ */
+public enum SaveFormat {
+    /** Human readable text, one line per board */
+    TEXT(".txt"),
+    /** Versioned binary with the boards stored as bitmasks, see BinaryGameCodec */
+    BINARY(".bsg");
+
+    private final String extension;
+
+    private SaveFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param filename Name of save, with or without extension
+     * @return Format matching the extension of filename, TEXT if there is none
+     */
+    public static SaveFormat forFileName(String filename) {
+        for (SaveFormat format : values()) {
+            if (filename.endsWith(format.extension))
+                return format;
+        }
+        return TEXT;
+    }
+
+    /** @return Whether filename ends with the extension of one of the formats */
+    public static boolean hasExtension(String filename) {
+        for (SaveFormat format : values()) {
+            if (filename.endsWith(format.extension))
+                return true;
+        }
+        return false;
+    }
+}
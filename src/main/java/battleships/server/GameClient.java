@@ -0,0 +1,149 @@
+package battleships.server;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import battleships.models.ShotResult;
+
+/**
+ * Plays games on a GameServer over a blocking socket. Every call sends its
+ * requests and waits for the responses. fireShots() sends all its shots before
+ * reading any response, so the server handles them as one batch.
+ *
+ * The state of the game after the latest response is kept, see
+ * getCurrentPlayer(), getShotsLeft() and isGameOver(). A client is used by one
+ * thread at a time
+ */
+public class GameClient implements Closeable {
+    // Requests sent before reading responses, at most
+    private static final int batchFrames = 256;
+
+    private final SocketChannel channel;
+    private final ByteBuffer requests = ByteBuffer.allocate(Protocol.requestSize * batchFrames);
+    private final ByteBuffer responses = ByteBuffer.allocate(Protocol.responseSize * batchFrames);
+
+    private byte status;
+    private int currentPlayer;
+    private int shotsLeft;
+
+    public GameClient(InetSocketAddress address) throws IOException {
+        this.channel = SocketChannel.open(address);
+        this.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    /** @return Id of a new session, with a game in its placement phase */
+    public long newSession() throws IOException, IllegalStateException {
+        return Integer.toUnsignedLong(call(Protocol.NEW, 0, 0, 0, 0));
+    }
+
+    /** Places the ships of the current player randomly */
+    public void randomizeBoard(long session) throws IOException, IllegalStateException {
+        call(Protocol.RANDOMIZE, 0, session, 0, 0);
+    }
+
+    /** Submits the board of the current player */
+    public void submitBoard(long session) throws IOException, IllegalStateException {
+        call(Protocol.SUBMIT, 0, session, 0, 0);
+    }
+
+    /**
+     * @param player 1 or 2
+     * @return Result of the shot, NO_SHOTS_LEFT if it is not the player's turn
+     */
+    public ShotResult fireShot(long session, int player, int x, int y) throws IOException, IllegalStateException {
+        return ShotResult.values()[call(Protocol.FIRE, player, session, x, y)];
+    }
+
+    /**
+     * Fires the shots (xs[i], ys[i]) in order, sending them in batches
+     *
+     * @return Result of each shot
+     */
+    public ShotResult[] fireShots(long session, int player, int[] xs, int[] ys)
+            throws IOException, IllegalStateException {
+        ShotResult[] results = new ShotResult[xs.length];
+        for (int from = 0; from < xs.length; from += batchFrames) {
+            int count = Math.min(batchFrames, xs.length - from);
+            requests.clear();
+            for (int i = from; i < from + count; i++) {
+                Protocol.putRequest(requests, Protocol.FIRE, player, (int) session, xs[i], ys[i]);
+            }
+            exchange(count);
+            for (int i = from; i < from + count; i++) {
+                results[i] = ShotResult.values()[readResponse()];
+            }
+        }
+        return results;
+    }
+
+    /** Ends the turn of the player */
+    public void switchPlayer(long session, int player) throws IOException, IllegalStateException {
+        call(Protocol.SWITCH, player, session, 0, 0);
+    }
+
+    public void closeSession(long session) throws IOException, IllegalStateException {
+        call(Protocol.CLOSE, 0, session, 0, 0);
+    }
+
+    private int call(byte op, int player, long session, int x, int y) throws IOException, IllegalStateException {
+        requests.clear();
+        Protocol.putRequest(requests, op, player, (int) session, x, y);
+        exchange(1);
+        return readResponse();
+    }
+
+    /** Sends the requests in the buffer, then reads count responses */
+    private void exchange(int count) throws IOException {
+        requests.flip();
+        while (requests.hasRemaining()) {
+            channel.write(requests);
+        }
+        responses.clear().limit(count * Protocol.responseSize);
+        while (responses.hasRemaining()) {
+            if (channel.read(responses) < 0)
+                throw new EOFException("Server closed the connection");
+        }
+        responses.flip();
+    }
+
+    /**
+     * @return Value of the next response
+     * @throws IllegalStateException When the server rejected the request
+     */
+    private int readResponse() throws IllegalStateException {
+        status = responses.get();
+        int player = responses.get();
+        int shots = responses.getShort();
+        int value = responses.getInt();
+        if (status == Protocol.statusError)
+            throw new IllegalStateException("Server rejected the request");
+        currentPlayer = player;
+        shotsLeft = shots;
+        return value;
+    }
+
+    /** @return Player whose turn it is after the latest request, 1 or 2 */
+    public int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    /** @return Shots left of the current player after the latest request */
+    public int getShotsLeft() {
+        return shotsLeft;
+    }
+
+    /** @return Whether the latest request ended the game */
+    public boolean isGameOver() {
+        return status == Protocol.statusGameOver;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,274 @@
+package battleships.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+import battleships.models.Game;
+import battleships.models.GameRules;
+import battleships.models.ShotResult;
+
+/**
+ * Lets clients outside the app play games in a SessionRegistry over TCP, using
+ * the fixed size frames of Protocol. One thread serves every connection with a
+ * non-blocking selector.
+ *
+ * All the requests that arrive in one read are handled before anything is
+ * written, and their responses go out in one write, so a client that sends many
+ * requests before reading costs one read and one write per batch instead of per
+ * request. A connection whose responses are not read stops being read from
+ * until its client catches up
+ */
+public class GameServer implements Closeable {
+    // Requests handled per batch, at most
+    private static final int batchFrames = 1024;
+    // Largest session id that fits in the unsigned int of a frame
+    private static final long maxSessionId = 0xffffffffL;
+
+    private final SessionRegistry registry;
+    private final GameRules rules;
+    // Only used by the server thread
+    private final RandomGenerator random;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Thread thread;
+    private volatile boolean running;
+
+    private static final class Connection {
+        final ByteBuffer in = ByteBuffer.allocate(Protocol.requestSize * batchFrames);
+        final ByteBuffer out = ByteBuffer.allocate(Protocol.responseSize * batchFrames);
+    }
+
+    /**
+     * Opens the server socket. Call start() to begin serving
+     *
+     * @param registry Where the sessions are kept
+     * @param rules    Rules of the games started with NEW
+     * @param address  Address to listen on, port 0 picks a free port
+     */
+    public GameServer(SessionRegistry registry, GameRules rules, InetSocketAddress address) throws IOException {
+        this(registry, rules, address, new SplittableRandom());
+    }
+
+    /**
+     * @param random Source of randomness for placing ships, only used by the
+     *               server thread
+     */
+    public GameServer(SessionRegistry registry, GameRules rules, InetSocketAddress address, RandomGenerator random)
+            throws IOException {
+        this.registry = registry;
+        this.rules = rules;
+        this.random = random;
+        this.selector = Selector.open();
+        try {
+            this.serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(address);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            selector.close();
+            throw e;
+        }
+        this.thread = new Thread(this::serve, "game-server");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /** @return Port the server listens on */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    private void serve() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable())
+                            accept();
+                        else if (key.isReadable())
+                            read(key);
+                        else if (key.isWritable())
+                            write(key);
+                    } catch (IOException | RuntimeException e) {
+                        // The client went away, which only ends its own connection
+                        closeConnection(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            running = false;
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null)
+            return;
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection());
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        if (((SocketChannel) key.channel()).read(connection.in) < 0) {
+            closeConnection(key);
+            return;
+        }
+        handleRequests(connection);
+        flush(key, connection);
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        flush(key, connection);
+        // Requests left unhandled while there was no room for their responses
+        if (connection.out.position() == 0 && connection.in.position() >= Protocol.requestSize) {
+            handleRequests(connection);
+            flush(key, connection);
+        }
+    }
+
+    /**
+     * Handles the whole requests in the input buffer, as far as there is room for
+     * their responses
+     */
+    private void handleRequests(Connection connection) {
+        ByteBuffer in = connection.in;
+        ByteBuffer out = connection.out;
+        in.flip();
+        while (in.remaining() >= Protocol.requestSize && out.remaining() >= Protocol.responseSize) {
+            handle(in, out);
+        }
+        in.compact();
+    }
+
+    /**
+     * Writes the queued responses. The connection is only read from again once
+     * they are written and the requests already read are handled
+     */
+    private void flush(SelectionKey key, Connection connection) throws IOException {
+        ByteBuffer out = connection.out;
+        out.flip();
+        ((SocketChannel) key.channel()).write(out);
+        out.compact();
+        boolean pending = out.position() > 0 || connection.in.position() >= Protocol.requestSize;
+        key.interestOps(pending ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void handle(ByteBuffer in, ByteBuffer out) {
+        byte op = in.get();
+        int player = in.get();
+        in.getShort();
+        long session = Integer.toUnsignedLong(in.getInt());
+        int x = in.getInt();
+        int y = in.getInt();
+        try {
+            if (op == Protocol.NEW) {
+                long id = registry.createSession(new Game(rules));
+                if (id > maxSessionId) {
+                    registry.closeSession(id);
+                    throw new IllegalStateException("Session ids no longer fit in a frame");
+                }
+                Protocol.putResponse(out, Protocol.statusOk, 1, rules.getShotsPerTurn(), (int) id);
+                return;
+            }
+            if (op == Protocol.CLOSE) {
+                if (!registry.closeSession(session))
+                    throw new IllegalArgumentException("There is no such session");
+                Protocol.putResponse(out, Protocol.statusOk, 0, 0, 0);
+                return;
+            }
+            registry.withSession(session, game -> {
+                int value = apply(game, op, player, x, y);
+                int current = game.getCurrentPlayer() == game.getPlayer1() ? 1 : 2;
+                byte status = !game.getIsPlacementPhase() && game.isGameOver() ? Protocol.statusGameOver
+                        : Protocol.statusOk;
+                Protocol.putResponse(out, status, current, game.getCurrentPlayer().getShotsLeft(), value);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // Also failures of the model that are not the client's fault, which
+            // must not end the server thread
+            Protocol.putResponse(out, Protocol.statusError, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Does a request on the game of its session
+     *
+     * @return Value of the response
+     */
+    private int apply(Game game, byte op, int player, int x, int y)
+            throws IllegalArgumentException, IllegalStateException {
+        switch (op) {
+            case Protocol.RANDOMIZE:
+                game.randomizeCurrentBoard(random);
+                return 0;
+            case Protocol.SUBMIT:
+                game.submitBoard(game.getCurrentPlayer().getName());
+                return 0;
+            case Protocol.FIRE:
+                if (!isTurnOf(game, player))
+                    return ShotResult.NO_SHOTS_LEFT.ordinal();
+                return game.resolveShot(x, y).ordinal();
+            case Protocol.SWITCH:
+                if (game.getIsPlacementPhase() || !isTurnOf(game, player))
+                    throw new IllegalStateException("Only the current player can end the turn");
+                game.switchPlayer();
+                return 0;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown request %d", op));
+        }
+    }
+
+    private static boolean isTurnOf(Game game, int player) {
+        return game.getCurrentPlayer() == (player == 1 ? game.getPlayer1() : game.getPlayer2());
+    }
+
+    private void closeConnection(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Nothing more can be done with the connection
+        }
+    }
+
+    /** Stops the server thread and closes every connection */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        if (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+}
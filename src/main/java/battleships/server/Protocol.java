@@ -0,0 +1,53 @@
+package battleships.server;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The frames GameServer and GameClient exchange. Every request is requestSize
+ * bytes and every response responseSize bytes, big endian:
+ *
+ * <pre>
+ * request  byte op, byte player, short 0, int session, int x, int y
+ * response byte status, byte current player, short shots left of the current
+ *          player, int value
+ * </pre>
+ *
+ * The value of a response is the id of the new session for NEW, the ordinal
+ * of the ShotResult for FIRE and 0 otherwise. Session ids are unsigned. A
+ * client may send any amount of requests before reading the responses, which
+ * come back in request order
+ */
+public final class Protocol {
+    public static final int requestSize = 16;
+    public static final int responseSize = 8;
+
+    /** Starts a session with a new game, in its placement phase */
+    public static final byte NEW = 1;
+    /** Game.randomizeCurrentBoard() */
+    public static final byte RANDOMIZE = 2;
+    /** Game.submitBoard(), keeping the name of the current player */
+    public static final byte SUBMIT = 3;
+    /** Game.resolveShot(), if it is the turn of the player */
+    public static final byte FIRE = 4;
+    /** Game.switchPlayer(), if it is the turn of the player */
+    public static final byte SWITCH = 5;
+    /** Closes the session */
+    public static final byte CLOSE = 6;
+
+    public static final byte statusOk = 0;
+    /** The request was done, and the game is over */
+    public static final byte statusGameOver = 1;
+    /** The request was not allowed, and nothing was changed */
+    public static final byte statusError = 2;
+
+    private Protocol() {
+    }
+
+    public static void putRequest(ByteBuffer buffer, byte op, int player, int session, int x, int y) {
+        buffer.put(op).put((byte) player).putShort((short) 0).putInt(session).putInt(x).putInt(y);
+    }
+
+    public static void putResponse(ByteBuffer buffer, byte status, int player, int shotsLeft, int value) {
+        buffer.put(status).put((byte) player).putShort((short) shotsLeft).putInt(value);
+    }
+}
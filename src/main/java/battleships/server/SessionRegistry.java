@@ -0,0 +1,287 @@
+package battleships.server;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import battleships.models.Game;
+import battleships.models.GameRules;
+import battleships.models.Player;
+import battleships.models.ShotResult;
+import battleships.models.filemanagement.IFileHandler;
+
+/**
+ * Keeps many games at once, each in a session with its own id. Every session is
+ * guarded by its own lock, so games in different sessions are played in parallel
+ * by any number of threads, while the moves in one game happen one at a time.
+ *
+ * Sessions that have not been used for a while are evicted: their game is
+ * written to the save store under the name "session-" + id and dropped from
+ * memory. The next use of the session reads the game back. Games read back from
+ * the store do not track their ships one by one, see GameBoard.loadMasks(), so
+ * a shot that sinks a ship in such a game reports HIT and not SUNK
+ */
+public class SessionRegistry implements Closeable {
+    private final IFileHandler store;
+    private final long idleNanos;
+    private final ScheduledExecutorService evictor;
+
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    private static final class Session {
+        final long id;
+        final GameRules rules;
+        final ReentrantLock lock = new ReentrantLock();
+        // Null while the session is evicted. Guarded by lock
+        Game game;
+        boolean closed;
+        volatile long lastUsed;
+
+        Session(long id, Game game) {
+            this.id = id;
+            this.rules = game.getRules();
+            this.game = game;
+            this.lastUsed = System.nanoTime();
+        }
+
+        String saveName() {
+            return "session-" + id;
+        }
+    }
+
+    /**
+     * Creates a registry that is only evicted by calls to evictIdle()
+     *
+     * @param store     Where evicted games are saved. Must be safe to use from
+     *                  several threads and have room for every evicted session
+     * @param idleNanos Time a session must be unused before it can be evicted
+     */
+    public SessionRegistry(IFileHandler store, long idleNanos) {
+        this(store, idleNanos, 0);
+    }
+
+    /**
+     * @param store         Where evicted games are saved. Must be safe to use from
+     *                      several threads and have room for every evicted
+     *                      session
+     * @param idleNanos     Time a session must be unused before it can be evicted
+     * @param evictInterval Nanoseconds between each time a background thread
+     *                      evicts idle sessions, 0 to not start the thread
+     */
+    public SessionRegistry(IFileHandler store, long idleNanos, long evictInterval) throws IllegalArgumentException {
+        if (idleNanos < 0 || evictInterval < 0)
+            throw new IllegalArgumentException("Idle time and evict interval cannot be negative");
+        this.store = store;
+        this.idleNanos = idleNanos;
+        if (evictInterval > 0) {
+            this.evictor = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "session-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.evictor.scheduleWithFixedDelay(this::evictIdle, evictInterval, evictInterval, TimeUnit.NANOSECONDS);
+        } else {
+            this.evictor = null;
+        }
+    }
+
+    /**
+     * Adds a game to the registry. The game must not be used other than through
+     * the registry afterwards
+     *
+     * @return Id of the new session
+     */
+    public long createSession(Game game) {
+        long id = nextId.getAndIncrement();
+        sessions.put(id, new Session(id, game));
+        return id;
+    }
+
+    /**
+     * Runs action on the game of the session while holding the session's lock,
+     * reading the game back from the store first if the session is evicted
+     *
+     * @param action Work on the game. It must not keep the game after returning
+     * @return What action returned
+     * @throws IllegalArgumentException When there is no session with the id
+     * @throws IllegalStateException    When an evicted game could not be read
+     */
+    public <T> T withSession(long id, Function<Game, T> action)
+            throws IllegalArgumentException, IllegalStateException {
+        Session session = getSession(id);
+        session.lock.lock();
+        try {
+            if (session.closed)
+                throw new IllegalArgumentException(String.format("There is no session %d", id));
+            if (session.game == null)
+                session.game = load(session);
+            session.lastUsed = System.nanoTime();
+            return action.apply(session.game);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * Fires a shot for a player in the session. When the player has no shots
+     * left after the shot and the game is not over, the turn goes to the other
+     * player
+     *
+     * @param player 1 or 2
+     * @return NO_SHOTS_LEFT if it is not the player's turn, otherwise the result
+     *         from Game.resolveShot()
+     * @throws IllegalArgumentException When there is no session with the id or the
+     *                                  player is not 1 or 2
+     * @throws IllegalStateException    When the game is still in its placement
+     *                                  phase
+     */
+    public ShotResult fireShot(long id, int player, int x, int y)
+            throws IllegalArgumentException, IllegalStateException {
+        if (player != 1 && player != 2)
+            throw new IllegalArgumentException(String.format("There is no player %d", player));
+        return withSession(id, game -> {
+            Player shooter = player == 1 ? game.getPlayer1() : game.getPlayer2();
+            if (game.getCurrentPlayer() != shooter)
+                return ShotResult.NO_SHOTS_LEFT;
+            ShotResult result = game.resolveShot(x, y);
+            if (result.isFired() && shooter.getShotsLeft() == 0 && !game.isGameOver())
+                game.switchPlayer();
+            return result;
+        });
+    }
+
+    /**
+     * Removes the session and its save, if it has one
+     *
+     * @return Whether there was a session with the id
+     */
+    public boolean closeSession(long id) {
+        Session session = sessions.remove(id);
+        if (session == null)
+            return false;
+        session.lock.lock();
+        try {
+            session.closed = true;
+            if (session.game == null)
+                deleteSave(session);
+            session.game = null;
+        } finally {
+            session.lock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Evicts every session that has been unused for the idle time. Sessions that
+     * are in use or in their placement phase are skipped, and so are sessions
+     * whose game could not be saved and read back
+     *
+     * @return Amount of sessions evicted
+     */
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Session session : sessions.values()) {
+            if (now - session.lastUsed >= idleNanos && evict(session))
+                evicted++;
+        }
+        return evicted;
+    }
+
+    private boolean evict(Session session) {
+        if (!session.lock.tryLock())
+            return false;
+        try {
+            // The save formats do not keep the placement phase or the ships left to
+            // place, so such games stay in memory
+            if (session.closed || session.game == null || session.game.getIsPlacementPhase())
+                return false;
+            store.writeGameState(session.saveName(), session.game);
+            // The game is only dropped once the store is known to give it back, so
+            // a save that cannot be read does not end the session
+            if (!session.game.equals(store.readGameState(session.saveName()))) {
+                deleteSave(session);
+                return false;
+            }
+            session.game = null;
+            return true;
+        } catch (FileNotFoundException | RuntimeException e) {
+            // The session stays in memory and is tried again on the next eviction
+            deleteSave(session);
+            return false;
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the game of an evicted session, with the players getting the shots
+     * per turn of the session's rules
+     */
+    private Game load(Session session) throws IllegalStateException {
+        Game saved;
+        try {
+            saved = store.readGameState(session.saveName());
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException(String.format("Could not read session %d", session.id), e);
+        }
+        Player player1 = copyPlayer(saved.getPlayer1(), session.rules);
+        Player player2 = copyPlayer(saved.getPlayer2(), session.rules);
+        Player current = saved.getCurrentPlayer() == saved.getPlayer1() ? player1 : player2;
+        deleteSave(session);
+        return new Game(player1, player2, current, session.rules);
+    }
+
+    private static Player copyPlayer(Player player, GameRules rules) {
+        Player copy = new Player(player.getName(), player.getFriendlyBoard(), player.getEnemyBoard(),
+                rules.getShotsPerTurn());
+        copy.setShots(player.getShotsLeft());
+        return copy;
+    }
+
+    private void deleteSave(Session session) {
+        try {
+            store.deleteSave(session.saveName());
+        } catch (FileNotFoundException | RuntimeException e) {
+            // A stale save is overwritten the next time the session is evicted
+        }
+    }
+
+    private Session getSession(long id) throws IllegalArgumentException {
+        Session session = sessions.get(id);
+        if (session == null)
+            throw new IllegalArgumentException(String.format("There is no session %d", id));
+        return session;
+    }
+
+    /** @return Amount of open sessions, evicted ones included */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /** @return Whether the game of the session is in memory */
+    public boolean isResident(long id) throws IllegalArgumentException {
+        Session session = getSession(id);
+        session.lock.lock();
+        try {
+            return session.game != null;
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /** Stops the background eviction. Sessions in memory are kept as they are */
+    @Override
+    public void close() {
+        if (evictor != null)
+            evictor.shutdownNow();
+    }
+}
@@ -0,0 +1,104 @@
+package battleships.sim;
+
+import java.util.random.RandomGenerator;
+
+import battleships.models.Game;
+import battleships.models.GameBoard;
+import battleships.models.ShotResult;
+
+/**
+ * Classic hunt and target strategy. While hunting it shoots at random squares in
+ * a checkerboard pattern, since every ship of length 2 or more covers at least
+ * one of them. After a hit it targets the neighbours of the hit until a ship is
+ * sunk
+ */
+public class HuntTargetStrategy implements ShootingStrategy {
+    private final RandomGenerator random;
+
+    private int width;
+    private int height;
+
+    // Squares (x * height + y) to hunt at. The first parityLeft entries of
+    // paritySquares are on the checkerboard pattern, the first othersLeft entries
+    // of otherSquares are not
+    private int[] paritySquares = new int[0];
+    private int[] otherSquares = new int[0];
+    private int parityLeft;
+    private int othersLeft;
+
+    // Neighbours of hits that are not shot yet
+    private int[] targets = new int[0];
+    private int targetCount;
+
+    public HuntTargetStrategy(RandomGenerator random) {
+        this.random = random;
+    }
+
+    @Override
+    public void newGame(Game game) {
+        width = game.getBoardWidth();
+        height = game.getBoardHeight();
+        int size = width * height;
+        if (paritySquares.length != size) {
+            paritySquares = new int[size];
+            otherSquares = new int[size];
+            targets = new int[size * 4];
+        }
+        parityLeft = 0;
+        othersLeft = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if ((x + y) % 2 == 0)
+                    paritySquares[parityLeft++] = x * height + y;
+                else
+                    otherSquares[othersLeft++] = x * height + y;
+            }
+        }
+        targetCount = 0;
+    }
+
+    @Override
+    public long nextShot(GameBoard enemyBoard) {
+        while (targetCount > 0) {
+            int square = targets[--targetCount];
+            if (!enemyBoard.isHit(square / height, square % height))
+                return ShootingStrategy.shot(square / height, square % height);
+        }
+        while (parityLeft > 0) {
+            int square = takeRandom(paritySquares, parityLeft--);
+            if (!enemyBoard.isHit(square / height, square % height))
+                return ShootingStrategy.shot(square / height, square % height);
+        }
+        while (true) {
+            int square = takeRandom(otherSquares, othersLeft--);
+            if (!enemyBoard.isHit(square / height, square % height))
+                return ShootingStrategy.shot(square / height, square % height);
+        }
+    }
+
+    /** Swaps a random square among the first count squares to the end and returns it */
+    private int takeRandom(int[] squares, int count) {
+        int index = random.nextInt(count);
+        int square = squares[index];
+        squares[index] = squares[count - 1];
+        squares[count - 1] = square;
+        return square;
+    }
+
+    @Override
+    public void shotResolved(int x, int y, ShotResult result) {
+        if (result == ShotResult.SUNK) {
+            targetCount = 0;
+        } else if (result == ShotResult.HIT) {
+            addTarget(x - 1, y);
+            addTarget(x + 1, y);
+            addTarget(x, y - 1);
+            addTarget(x, y + 1);
+        }
+    }
+
+    private void addTarget(int x, int y) {
+        if (x >= 0 && y >= 0 && x < width && y < height)
+            targets[targetCount++] = x * height + y;
+    }
+}
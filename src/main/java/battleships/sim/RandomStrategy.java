@@ -0,0 +1,43 @@
+package battleships.sim;
+
+import java.util.random.RandomGenerator;
+
+import battleships.models.Game;
+import battleships.models.GameBoard;
+
+/**
+ * Shoots at squares in uniformly random order, never at the same square twice
+ */
+public class RandomStrategy implements ShootingStrategy {
+    private final RandomGenerator random;
+
+    // The first squaresLeft entries are the squares (x * height + y) not shot yet
+    private int[] squares = new int[0];
+    private int squaresLeft;
+    private int height;
+
+    public RandomStrategy(RandomGenerator random) {
+        this.random = random;
+    }
+
+    @Override
+    public void newGame(Game game) {
+        int size = game.getBoardWidth() * game.getBoardHeight();
+        if (squares.length != size)
+            squares = new int[size];
+        for (int i = 0; i < size; i++) {
+            squares[i] = i;
+        }
+        squaresLeft = size;
+        height = game.getBoardHeight();
+    }
+
+    @Override
+    public long nextShot(GameBoard enemyBoard) {
+        int index = random.nextInt(squaresLeft);
+        int square = squares[index];
+        squares[index] = squares[--squaresLeft];
+        squares[squaresLeft] = square;
+        return ShootingStrategy.shot(square / height, square % height);
+    }
+}
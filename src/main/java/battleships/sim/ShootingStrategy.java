@@ -0,0 +1,52 @@
+package battleships.sim;
+
+import battleships.models.Game;
+import battleships.models.GameBoard;
+import battleships.models.ShotResult;
+
+/**
+ * Picks shots for one player in a simulated game. A strategy instance is used
+ * for one game at a time, and newGame() is called before each game.
+ *
+ * Shots are returned as one long, with x in the upper and y in the lower 32
+ * bits, so picking a shot allocates nothing. Use shot(), shotX() and shotY() to
+ * encode and decode
+ */
+public interface ShootingStrategy {
+
+    /**
+     * Resets the strategy before a game starts
+     *
+     * @param game Game that is about to be played, after the placement phase
+     */
+    public void newGame(Game game);
+
+    /**
+     * @param enemyBoard Board the strategy is shooting at
+     * @return Square to shoot at next, encoded with shot(). Must be within the
+     *         board and not shot at before
+     */
+    public long nextShot(GameBoard enemyBoard);
+
+    /**
+     * Called after each shot picked by the strategy has been fired
+     *
+     * @param x      x coordinate of the shot
+     * @param y      y coordinate of the shot
+     * @param result MISS, HIT or SUNK
+     */
+    public default void shotResolved(int x, int y, ShotResult result) {
+    }
+
+    public static long shot(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    public static int shotX(long shot) {
+        return (int) (shot >>> 32);
+    }
+
+    public static int shotY(long shot) {
+        return (int) shot;
+    }
+}
@@ -0,0 +1,92 @@
+package battleships.sim;
+
+import java.util.Arrays;
+
+/**
+ * Totals from a batch of simulated games between two strategies
+ */
+public class SimulationResult {
+    private long games;
+    private long strategy1Wins;
+    private long strategy2Wins;
+    private long totalTurns;
+    private long elapsedNanos;
+
+    // Amount of games that lasted i turns
+    private long[] turnHistogram = new long[32];
+
+    /**
+     * Registers a finished game
+     *
+     * @param strategy1Won Whether the first strategy won the game
+     * @param turns        Amount of turns played, counting each player's turn
+     */
+    public void registerGame(boolean strategy1Won, int turns) {
+        games++;
+        if (strategy1Won)
+            strategy1Wins++;
+        else
+            strategy2Wins++;
+        totalTurns += turns;
+        if (turns >= turnHistogram.length)
+            turnHistogram = Arrays.copyOf(turnHistogram, Math.max(turns + 1, turnHistogram.length * 2));
+        turnHistogram[turns]++;
+    }
+
+    public void addElapsedNanos(long nanos) {
+        elapsedNanos += nanos;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getTotalTurns() {
+        return totalTurns;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** @return Amount of games that lasted the given amount of turns */
+    public long getGamesWithTurns(int turns) {
+        return turns < turnHistogram.length ? turnHistogram[turns] : 0;
+    }
+
+    /** @return Largest amount of turns a game can have lasted, plus one */
+    public int getTurnHistogramLength() {
+        return turnHistogram.length;
+    }
+
+    public long getStrategy1Wins() {
+        return strategy1Wins;
+    }
+
+    public long getStrategy2Wins() {
+        return strategy2Wins;
+    }
+
+    public double getStrategy1WinRate() {
+        return games == 0 ? 0 : (double) strategy1Wins / games;
+    }
+
+    public double getStrategy2WinRate() {
+        return games == 0 ? 0 : (double) strategy2Wins / games;
+    }
+
+    public double getAverageTurns() {
+        return games == 0 ? 0 : (double) totalTurns / games;
+    }
+
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("games:%d games/s:%.0f avg turns:%.2f strategy 1 wins:%.2f%% strategy 2 wins:%.2f%%",
+                games, getGamesPerSecond(), getAverageTurns(), getStrategy1WinRate() * 100,
+                getStrategy2WinRate() * 100);
+    }
+}
@@ -0,0 +1,126 @@
+package battleships.sim;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+import battleships.models.Game;
+import battleships.models.GameRules;
+import battleships.models.GameUtils;
+import battleships.models.Player;
+import battleships.models.ShotResult;
+
+/**
+ * Plays complete games between two shooting strategies without any UI. Games go
+ * through the same steps as in the app: both boards are randomized and
+ * submitted, then the players take turns firing all their shots.
+ *
+ * The strategies switch between being player 1 and player 2 every game, so
+ * neither gets the advantage of always shooting first. A simulator and its
+ * strategies are used by one thread at a time
+ */
+public class Simulator {
+    private final GameRules rules;
+    private final ShootingStrategy strategy1;
+    private final ShootingStrategy strategy2;
+    private final RandomGenerator placementRandom;
+
+    public Simulator(int boardWidth, int boardHeight, ShootingStrategy strategy1, ShootingStrategy strategy2) {
+        this(boardWidth, boardHeight, strategy1, strategy2, new SplittableRandom());
+    }
+
+    /**
+     * @param placementRandom Source of randomness for placing the ships. Seed it
+     *                        together with the strategies to reproduce games
+     */
+    public Simulator(int boardWidth, int boardHeight, ShootingStrategy strategy1, ShootingStrategy strategy2,
+            RandomGenerator placementRandom) throws IllegalArgumentException {
+        this(GameUtils.DEFAULT_RULES.withBoardSize(boardWidth, boardHeight), strategy1, strategy2, placementRandom);
+    }
+
+    /**
+     * @param rules           Rules every game is played by
+     * @param placementRandom Source of randomness for placing the ships. Seed it
+     *                        together with the strategies to reproduce games
+     */
+    public Simulator(GameRules rules, ShootingStrategy strategy1, ShootingStrategy strategy2,
+            RandomGenerator placementRandom) {
+        this.rules = rules;
+        this.strategy1 = strategy1;
+        this.strategy2 = strategy2;
+        this.placementRandom = placementRandom;
+    }
+
+    /**
+     * Plays games and registers them in a new result
+     *
+     * @param games Amount of games to play
+     * @return Totals for the games
+     */
+    public SimulationResult run(long games) {
+        SimulationResult result = new SimulationResult();
+        long start = System.nanoTime();
+        for (long i = 0; i < games; i++) {
+            playGame(i % 2 == 0, result);
+        }
+        result.addElapsedNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Plays one game to the end
+     *
+     * @param strategy1First Whether strategy 1 is player 1 and shoots first
+     * @param result         Result to register the game in
+     * @throws IllegalStateException When a strategy picks a shot that is not
+     *                               allowed
+     */
+    public void playGame(boolean strategy1First, SimulationResult result) throws IllegalStateException {
+        Game game = new Game(rules);
+        game.randomizeCurrentBoard(placementRandom);
+        game.submitBoard(game.getPlayer1().getName());
+        game.randomizeCurrentBoard(placementRandom);
+        game.submitBoard(game.getPlayer2().getName());
+
+        ShootingStrategy first = strategy1First ? strategy1 : strategy2;
+        ShootingStrategy second = strategy1First ? strategy2 : strategy1;
+        first.newGame(game);
+        second.newGame(game);
+
+        int turns = 1;
+        while (true) {
+            Player player = game.getCurrentPlayer();
+            ShootingStrategy shooter = player == game.getPlayer1() ? first : second;
+            while (player.getShotsLeft() > 0) {
+                long shot = shooter.nextShot(player.getEnemyBoard());
+                int x = ShootingStrategy.shotX(shot);
+                int y = ShootingStrategy.shotY(shot);
+                ShotResult shotResult = game.resolveShot(x, y);
+                if (!shotResult.isFired()) {
+                    throw new IllegalStateException(
+                            String.format("Strategy picked shot at (%d, %d) which gave %s", x, y, shotResult));
+                }
+                shooter.shotResolved(x, y, shotResult);
+                if (shotResult.isHit() && game.isGameOver()) {
+                    result.registerGame((shooter == strategy1), turns);
+                    return;
+                }
+            }
+            game.switchPlayer();
+            turns++;
+        }
+    }
+
+    /**
+     * Plays random strategy against hunt and target strategy and prints the
+     * result. Takes amount of games as optional argument
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        SplittableRandom random = new SplittableRandom();
+        Simulator simulator = new Simulator(GameUtils.boardWidth, GameUtils.boardHeight,
+                new RandomStrategy(random.split()), new HuntTargetStrategy(random.split()));
+        // Warm up before measuring
+        simulator.run(games / 10);
+        System.out.println(simulator.run(games));
+    }
+}
@@ -0,0 +1,130 @@
+package battleships.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+
+import battleships.models.GameRules;
+import battleships.models.GameUtils;
+
+/**
+ * Plays many independent games between two strategies on all cores.
+ *
+ * The games are split into fixed size batches. Every batch gets its own
+ * SplittableRandom, split from the master seed in batch order before any game
+ * is played, and its own strategies and simulator. The result is therefore the
+ * same for a given master seed no matter how many threads play the batches or
+ * in which order they finish
+ */
+public class Tournament {
+    private static final int batchSize = 1024;
+
+    private final GameRules rules;
+    private final Function<RandomGenerator, ShootingStrategy> strategy1;
+    private final Function<RandomGenerator, ShootingStrategy> strategy2;
+    private final int parallelism;
+
+    /**
+     * @param strategy1   Creates the first strategy for a batch from the batch's
+     *                    source of randomness, for example RandomStrategy::new
+     * @param strategy2   Creates the second strategy for a batch
+     * @param parallelism Amount of worker threads
+     */
+    public Tournament(int boardWidth, int boardHeight, Function<RandomGenerator, ShootingStrategy> strategy1,
+            Function<RandomGenerator, ShootingStrategy> strategy2, int parallelism) throws IllegalArgumentException {
+        this(GameUtils.DEFAULT_RULES.withBoardSize(boardWidth, boardHeight), strategy1, strategy2, parallelism);
+    }
+
+    /**
+     * @param rules       Rules every game is played by
+     * @param strategy1   Creates the first strategy for a batch from the batch's
+     *                    source of randomness, for example RandomStrategy::new
+     * @param strategy2   Creates the second strategy for a batch
+     * @param parallelism Amount of worker threads
+     */
+    public Tournament(GameRules rules, Function<RandomGenerator, ShootingStrategy> strategy1,
+            Function<RandomGenerator, ShootingStrategy> strategy2, int parallelism) throws IllegalArgumentException {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Tournament needs at least one worker thread");
+        this.rules = rules;
+        this.strategy1 = strategy1;
+        this.strategy2 = strategy2;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Plays the games on a fork-join pool and waits for all of them to finish
+     *
+     * @param games      Amount of games to play
+     * @param masterSeed Seed all randomness in the tournament is derived from
+     * @return Totals for all the games
+     * @throws IllegalStateException When a game fails or the tournament is
+     *                               interrupted
+     */
+    public TournamentResult run(long games, long masterSeed) throws IllegalStateException {
+        // Each player needs at most one shot per square, and player 1 may get one
+        // turn more than player 2
+        int squares = rules.getBoardWidth() * rules.getBoardHeight();
+        int shotsPerTurn = rules.getShotsPerTurn();
+        TournamentResult result = new TournamentResult(2 * ((squares + shotsPerTurn - 1) / shotsPerTurn));
+
+        SplittableRandom master = new SplittableRandom(masterSeed);
+        List<Callable<Void>> batches = new ArrayList<>();
+        for (long first = 0; first < games; first += batchSize) {
+            SplittableRandom random = master.split();
+            long count = Math.min(batchSize, games - first);
+            batches.add(() -> {
+                playBatch(random, count, result);
+                return null;
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long start = System.nanoTime();
+        try {
+            for (Future<Void> batch : pool.invokeAll(batches)) {
+                batch.get();
+            }
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Tournament game failed", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tournament was interrupted", ex);
+        } finally {
+            pool.shutdownNow();
+        }
+        result.setElapsedNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    private void playBatch(SplittableRandom random, long games, TournamentResult result) {
+        Simulator simulator = new Simulator(rules, strategy1.apply(random.split()),
+                strategy2.apply(random.split()), random.split());
+        SimulationResult batch = new SimulationResult();
+        for (long i = 0; i < games; i++) {
+            simulator.playGame(i % 2 == 0, batch);
+        }
+        result.add(batch);
+    }
+
+    /**
+     * Plays random strategy against hunt and target strategy on all cores and
+     * prints the result. Takes amount of games and master seed as optional
+     * arguments
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        int cores = Runtime.getRuntime().availableProcessors();
+        Tournament tournament = new Tournament(GameUtils.boardWidth, GameUtils.boardHeight, RandomStrategy::new,
+                HuntTargetStrategy::new, cores);
+        System.out.println(String.format("%d workers", cores));
+        System.out.println(tournament.run(games, seed));
+    }
+}
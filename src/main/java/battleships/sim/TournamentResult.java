@@ -0,0 +1,98 @@
+package battleships.sim;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totals from a tournament. Workers add their batches through striped LongAdder
+ * counters, so they never wait on each other to register results
+ */
+public class TournamentResult {
+    // Games lasting this many turns or more share the last histogram bucket
+    private static final int maxHistogramLength = 4096;
+
+    private final LongAdder games = new LongAdder();
+    private final LongAdder strategy1Wins = new LongAdder();
+    private final LongAdder strategy2Wins = new LongAdder();
+    private final LongAdder totalTurns = new LongAdder();
+    private final LongAdder[] turnHistogram;
+    private volatile long elapsedNanos;
+
+    /**
+     * @param maxTurns Largest amount of turns a game can last
+     */
+    public TournamentResult(int maxTurns) {
+        turnHistogram = new LongAdder[Math.min(maxTurns + 1, maxHistogramLength)];
+        for (int i = 0; i < turnHistogram.length; i++) {
+            turnHistogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Adds the totals from a batch of games played by one worker
+     */
+    public void add(SimulationResult batch) {
+        games.add(batch.getGames());
+        strategy1Wins.add(batch.getStrategy1Wins());
+        strategy2Wins.add(batch.getStrategy2Wins());
+        totalTurns.add(batch.getTotalTurns());
+        for (int turns = 0; turns < batch.getTurnHistogramLength(); turns++) {
+            long count = batch.getGamesWithTurns(turns);
+            if (count > 0)
+                turnHistogram[Math.min(turns, turnHistogram.length - 1)].add(count);
+        }
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getGames() {
+        return games.sum();
+    }
+
+    public long getStrategy1Wins() {
+        return strategy1Wins.sum();
+    }
+
+    public long getStrategy2Wins() {
+        return strategy2Wins.sum();
+    }
+
+    public double getStrategy1WinRate() {
+        long games = getGames();
+        return games == 0 ? 0 : (double) getStrategy1Wins() / games;
+    }
+
+    public double getStrategy2WinRate() {
+        long games = getGames();
+        return games == 0 ? 0 : (double) getStrategy2Wins() / games;
+    }
+
+    public double getAverageTurns() {
+        long games = getGames();
+        return games == 0 ? 0 : (double) totalTurns.sum() / games;
+    }
+
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : getGames() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return Amount of games that lasted i turns, at index i. The last index also
+     *         counts all longer games
+     */
+    public long[] getTurnHistogram() {
+        long[] histogram = new long[turnHistogram.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = turnHistogram[i].sum();
+        }
+        return histogram;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("games:%d games/s:%.0f avg turns:%.2f strategy 1 wins:%.2f%% strategy 2 wins:%.2f%%",
+                getGames(), getGamesPerSecond(), getAverageTurns(), getStrategy1WinRate() * 100,
+                getStrategy2WinRate() * 100);
+    }
+}
@@ -0,0 +1,121 @@
+package battleships.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import battleships.models.Game;
+import battleships.models.GameBoard;
+import battleships.sim.HuntTargetStrategy;
+import battleships.sim.ShootingStrategy;
+import battleships.sim.SimulationResult;
+import battleships.sim.Simulator;
+
+public class MonteCarloStrategyTest {
+
+    private static final long second = 1_000_000_000L;
+
+    private Game newGame(int size, SplittableRandom random) {
+        Game game = new Game(size, size);
+        game.randomizeCurrentBoard(random);
+        game.submitBoard("Kåre");
+        game.randomizeCurrentBoard(random);
+        game.submitBoard("Gunnar");
+        return game;
+    }
+
+    @Test
+    void testConstructor() {
+        SplittableRandom random = new SplittableRandom(1);
+        assertThrows(IllegalArgumentException.class, () -> new MonteCarloStrategy(random, 0, second, 100),
+                "No workers exception");
+        assertThrows(IllegalArgumentException.class, () -> new MonteCarloStrategy(random, 1, 0, 100),
+                "No time budget exception");
+    }
+
+    @Test
+    void testPlaysWholeGame() {
+        for (int workers = 1; workers <= 2; workers++) {
+            SplittableRandom random = new SplittableRandom(5);
+            Game game = newGame(8, random);
+            GameBoard enemyBoard = game.getPlayer2().getFriendlyBoard();
+            try (MonteCarloStrategy strategy = new MonteCarloStrategy(random, workers, second, 200)) {
+                strategy.newGame(game);
+                int shots = 0;
+                while (!enemyBoard.isGameOver()) {
+                    long shot = strategy.nextShot(enemyBoard);
+                    assertEquals(200, strategy.getSamples());
+                    int x = ShootingStrategy.shotX(shot);
+                    int y = ShootingStrategy.shotY(shot);
+                    assertFalse(enemyBoard.isHit(x, y), "Shot at the same square twice");
+                    enemyBoard.resolveShot(x, y);
+                    shots++;
+                }
+                assertTrue(shots < 64, "Should not need to shoot every square");
+            }
+        }
+    }
+
+    @Test
+    void testFollowsHits() {
+        SplittableRandom random = new SplittableRandom(9);
+        Game game = newGame(8, random);
+        GameBoard enemyBoard = game.getPlayer2().getFriendlyBoard();
+        // Hit a ship without sinking it
+        int hit = -1;
+        for (int square = 0; square < 64 && hit < 0; square++) {
+            if (enemyBoard.containsShip(square / 8, square % 8))
+                hit = square;
+        }
+        enemyBoard.fireShot(hit / 8, hit % 8);
+        try (MonteCarloStrategy strategy = new MonteCarloStrategy(random, 1, second, 500)) {
+            strategy.newGame(game);
+            long shot = strategy.nextShot(enemyBoard);
+            int distance = Math.abs(ShootingStrategy.shotX(shot) - hit / 8)
+                    + Math.abs(ShootingStrategy.shotY(shot) - hit % 8);
+            assertEquals(1, distance, "Every sampled layout covers the hit, so its neighbours are most likely");
+        }
+    }
+
+    @Test
+    void testBeatsHuntTarget() {
+        try (MonteCarloStrategy strategy = new MonteCarloStrategy(new SplittableRandom(2), 1, second, 100)) {
+            Simulator simulator = new Simulator(8, 8, new HuntTargetStrategy(new SplittableRandom(1)), strategy,
+                    new SplittableRandom(3));
+            SimulationResult result = simulator.run(40);
+            assertTrue(result.getStrategy2Wins() > result.getStrategy1Wins(),
+                    "Monte Carlo should beat hunt and target");
+        }
+    }
+
+    @Test
+    void testCache() {
+        SplittableRandom random = new SplittableRandom(11);
+        TranspositionTable cache = new TranspositionTable(1024);
+        try (MonteCarloStrategy strategy = new MonteCarloStrategy(random, 1, second, 200, cache)) {
+            Game game = newGame(8, random);
+            strategy.newGame(game);
+            long opening = strategy.nextShot(game.getPlayer2().getFriendlyBoard());
+            assertEquals(200, strategy.getSamples());
+            assertEquals(1, cache.size());
+
+            // Another game with other ships starts in the same known state
+            game = newGame(8, random);
+            strategy.newGame(game);
+            assertEquals(opening, strategy.nextShot(game.getPlayer2().getFriendlyBoard()));
+            assertEquals(0, strategy.getSamples());
+
+            // Other rules do not get the cached shots
+            game = newGame(10, random);
+            strategy.newGame(game);
+            assertEquals(0, cache.size());
+            strategy.nextShot(game.getPlayer2().getFriendlyBoard());
+            assertEquals(200, strategy.getSamples());
+        }
+    }
+}
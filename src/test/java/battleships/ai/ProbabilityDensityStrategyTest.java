@@ -0,0 +1,118 @@
+package battleships.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import battleships.models.Battleship;
+import battleships.models.Game;
+import battleships.models.GameBoard;
+import battleships.models.ShotResult;
+import battleships.sim.HuntTargetStrategy;
+import battleships.sim.ShootingStrategy;
+import battleships.sim.SimulationResult;
+import battleships.sim.Simulator;
+
+public class ProbabilityDensityStrategyTest {
+
+    private Game game;
+    private GameBoard enemyBoard;
+    private ProbabilityDensityStrategy strategy;
+
+    @BeforeEach
+    void init() {
+        SplittableRandom random = new SplittableRandom(3);
+        game = new Game(8, 8);
+        game.randomizeCurrentBoard(random);
+        game.submitBoard("Kåre");
+        game.randomizeCurrentBoard(random);
+        game.submitBoard("Gunnar");
+        enemyBoard = game.getPlayer2().getFriendlyBoard();
+        strategy = new ProbabilityDensityStrategy(random);
+        strategy.newGame(game);
+    }
+
+    @Test
+    void testEmptyBoardHeat() {
+        // A ship of length 4 fits over a corner in 2 ways, one along each axis
+        assertEquals(2 + 2 + 2, strategy.getHeat(0, 0));
+        // Squares further in are covered by more placements
+        assertTrue(strategy.getHeat(3, 3) > strategy.getHeat(0, 3));
+    }
+
+    @Test
+    void testIncrementalHeat() {
+        int shots = 0;
+        while (!enemyBoard.isGameOver()) {
+            long shot = strategy.nextShot(enemyBoard);
+            int x = ShootingStrategy.shotX(shot);
+            int y = ShootingStrategy.shotY(shot);
+            assertFalse(enemyBoard.isHit(x, y), "Shot at the same square twice");
+            ShotResult result = enemyBoard.resolveShot(x, y);
+            assertTrue(result.isFired());
+            shots++;
+            if (!enemyBoard.isGameOver() && shots % 5 == 0) {
+                // Heat after the next catch up matches counting from scratch
+                strategy.nextShot(enemyBoard);
+                assertHeatMatchesRecount();
+            }
+        }
+        assertTrue(shots < 64, "Should not need to shoot every square");
+    }
+
+    /** Counts the placements of the ships afloat that cover no miss or sunk ship */
+    private void assertHeatMatchesRecount() {
+        int width = game.getBoardWidth();
+        int height = game.getBoardHeight();
+        long[] expected = new long[width * height];
+        List<Battleship> fleet = game.getBattleships();
+        // Sunk ships leave the fleet, so only recount before the first one sinks
+        if (enemyBoard.getShipsAfloat() < fleet.size())
+            return;
+        for (Battleship ship : fleet) {
+            int length = ship.getLength();
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    if (x + length <= width && isOpen(x, y, length, true)) {
+                        for (int j = 0; j < length; j++)
+                            expected[(x + j) * height + y]++;
+                    }
+                    if (y + length <= height && isOpen(x, y, length, false)) {
+                        for (int j = 0; j < length; j++)
+                            expected[x * height + y + j]++;
+                    }
+                }
+            }
+        }
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                assertEquals(expected[x * height + y], strategy.getHeat(x, y));
+            }
+        }
+    }
+
+    private boolean isOpen(int x, int y, int length, boolean alongX) {
+        for (int j = 0; j < length; j++) {
+            int squareX = alongX ? x + j : x;
+            int squareY = alongX ? y : y + j;
+            if (enemyBoard.isHit(squareX, squareY) && !enemyBoard.containsShip(squareX, squareY))
+                return false;
+        }
+        return true;
+    }
+
+    @Test
+    void testBeatsHuntTarget() {
+        Simulator simulator = new Simulator(10, 10, new HuntTargetStrategy(new SplittableRandom(1)),
+                new ProbabilityDensityStrategy(new SplittableRandom(2)), new SplittableRandom(3));
+        SimulationResult result = simulator.run(400);
+        assertTrue(result.getStrategy2Wins() > result.getStrategy1Wins(),
+                "Probability density should beat hunt and target");
+    }
+}
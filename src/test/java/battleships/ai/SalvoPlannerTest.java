@@ -0,0 +1,144 @@
+package battleships.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import battleships.models.Game;
+import battleships.models.GameBoard;
+import battleships.sim.HuntTargetStrategy;
+import battleships.sim.ShootingStrategy;
+import battleships.sim.SimulationResult;
+import battleships.sim.Simulator;
+
+public class SalvoPlannerTest {
+
+    private static final long second = 1_000_000_000L;
+
+    private Game newGame(int size, SplittableRandom random) {
+        Game game = new Game(size, size);
+        game.randomizeCurrentBoard(random);
+        game.submitBoard("Kåre");
+        game.randomizeCurrentBoard(random);
+        game.submitBoard("Gunnar");
+        return game;
+    }
+
+    @Test
+    void testConstructor() {
+        SplittableRandom random = new SplittableRandom(1);
+        assertThrows(IllegalArgumentException.class, () -> new SalvoPlanner(random, 1, second, 100, 0),
+                "No candidates exception");
+        assertThrows(IllegalArgumentException.class, () -> new SalvoPlanner(random, 1, second, 0, 8),
+                "No samples exception");
+    }
+
+    @Test
+    void testBestSalvo() {
+        SplittableRandom random = new SplittableRandom(4);
+        Game game = newGame(8, random);
+        GameBoard enemyBoard = game.getPlayer2().getFriendlyBoard();
+        enemyBoard.fireShot(3, 3);
+        enemyBoard.fireShot(4, 4);
+        for (int workers = 1; workers <= 3; workers += 2) {
+            try (SalvoPlanner planner = new SalvoPlanner(new SplittableRandom(7), workers, 10 * second, 400, 10)) {
+                planner.newGame(game);
+                long[] salvo = planner.planSalvo(enemyBoard, 3);
+                assertEquals(3, salvo.length);
+                assertEquals(400, planner.getSamples());
+
+                int[] squares = new int[3];
+                for (int i = 0; i < 3; i++) {
+                    int x = ShootingStrategy.shotX(salvo[i]);
+                    int y = ShootingStrategy.shotY(salvo[i]);
+                    assertFalse(enemyBoard.isHit(x, y), "Salvo shoots at a square that is shot");
+                    squares[i] = x * 8 + y;
+                }
+                assertNotEquals(squares[0], squares[1]);
+                assertNotEquals(squares[1], squares[2]);
+                assertNotEquals(squares[0], squares[2]);
+
+                // No salvo of candidates scores better
+                long score = planner.scoreSquares(squares);
+                int candidates = planner.getCandidateCount();
+                for (int a = 0; a < candidates; a++) {
+                    for (int b = a + 1; b < candidates; b++) {
+                        for (int c = b + 1; c < candidates; c++) {
+                            int[] other = { planner.getCandidate(a), planner.getCandidate(b),
+                                    planner.getCandidate(c) };
+                            assertTrue(planner.scoreSquares(other) <= score);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testOutOfTime() {
+        SplittableRandom random = new SplittableRandom(5);
+        Game game = newGame(10, random);
+        GameBoard enemyBoard = game.getPlayer2().getFriendlyBoard();
+        // A full salvo of squares not shot yet, even when time runs out at once
+        try (SalvoPlanner planner = new SalvoPlanner(new SplittableRandom(7), 2, 1, 100, 64)) {
+            planner.newGame(game);
+            long[] salvo = planner.planSalvo(enemyBoard, 5);
+            assertEquals(5, salvo.length);
+            for (long shot : salvo) {
+                assertFalse(enemyBoard.isHit(ShootingStrategy.shotX(shot), ShootingStrategy.shotY(shot)));
+            }
+        }
+    }
+
+    @Test
+    void testNoSquaresLeft() {
+        SplittableRandom random = new SplittableRandom(6);
+        Game game = newGame(8, random);
+        GameBoard enemyBoard = game.getPlayer2().getFriendlyBoard();
+        try (SalvoPlanner planner = new SalvoPlanner(random)) {
+            planner.newGame(game);
+            for (int x = 0; x < 8; x++) {
+                for (int y = 0; y < 8; y++) {
+                    enemyBoard.resolveShot(x, y);
+                }
+            }
+            assertEquals(0, planner.planSalvo(enemyBoard, 3).length);
+            assertThrows(IllegalStateException.class, () -> planner.nextShot(enemyBoard), "No squares left exception");
+        }
+    }
+
+    @Test
+    void testPlaysWholeGame() {
+        SplittableRandom random = new SplittableRandom(6);
+        Game game = newGame(8, random);
+        GameBoard enemyBoard = game.getPlayer2().getFriendlyBoard();
+        try (SalvoPlanner planner = new SalvoPlanner(random)) {
+            planner.newGame(game);
+            int shots = 0;
+            while (!enemyBoard.isGameOver()) {
+                long shot = planner.nextShot(enemyBoard);
+                assertTrue(enemyBoard.resolveShot(ShootingStrategy.shotX(shot), ShootingStrategy.shotY(shot))
+                        .isFired(), "Shot at the same square twice");
+                shots++;
+            }
+            assertTrue(shots < 64, "Should not need to shoot every square");
+        }
+    }
+
+    @Test
+    void testBeatsHuntTarget() {
+        try (SalvoPlanner planner = new SalvoPlanner(new SplittableRandom(2), 1, second, 100, 8)) {
+            Simulator simulator = new Simulator(8, 8, new HuntTargetStrategy(new SplittableRandom(1)), planner,
+                    new SplittableRandom(3));
+            SimulationResult result = simulator.run(40);
+            assertTrue(result.getStrategy2Wins() > result.getStrategy1Wins(),
+                    "Planned salvos should beat hunt and target");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package battleships.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TranspositionTableTest {
+
+    @Test
+    void testConstructor() {
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0), "No capacity exception");
+        assertEquals(1, new TranspositionTable(1).getCapacity());
+        assertEquals(8, new TranspositionTable(5).getCapacity());
+        assertEquals(8, new TranspositionTable(8).getCapacity());
+    }
+
+    @Test
+    void testPutAndGet() {
+        TranspositionTable table = new TranspositionTable(16);
+        assertFalse(table.contains(0));
+        assertEquals(-1, table.get(0, -1));
+        // The hash of an empty board is 0
+        table.put(0, 7);
+        table.put(0x1234_5678_9ABC_DEF1L, 8);
+        assertTrue(table.contains(0));
+        assertEquals(7, table.get(0, -1));
+        assertEquals(8, table.get(0x1234_5678_9ABC_DEF1L, -1));
+        table.put(0, 9);
+        assertEquals(9, table.get(0, -1));
+        assertEquals(2, table.size());
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertFalse(table.contains(0));
+    }
+
+    @Test
+    void testBounded() {
+        TranspositionTable table = new TranspositionTable(4);
+        for (long key = 0; key < 1000; key++) {
+            table.put(key, key * 2);
+        }
+        assertEquals(4, table.size());
+        // Newer keys replace older keys in the same slot
+        for (long key = 996; key < 1000; key++) {
+            assertEquals(key * 2, table.get(key, -1));
+        }
+        assertFalse(table.contains(0));
+    }
+}
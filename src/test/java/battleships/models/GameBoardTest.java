@@ -3,12 +3,19 @@ package battleships.models;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.SplittableRandom;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -98,8 +105,11 @@ public class GameBoardTest {
                 "Test that width/height cant be smaller than minimum allowed (currently 4)");
         assertThrows(IllegalArgumentException.class, () -> new GameBoard(3, 3),
                 "Test that width/height cant be smaller than minimum allowed (currently 4)");
-        assertThrows(IllegalArgumentException.class, () -> new GameBoard(5, 6),
-                "Board and width not equal exception");
+        assertThrows(IllegalArgumentException.class, () -> new GameBoard(4, 3),
+                "Test that height cant be smaller than minimum allowed (currently 4)");
+        assertThrows(IllegalArgumentException.class, () -> new GameBoard(Integer.MAX_VALUE, Integer.MAX_VALUE),
+                "Too many squares exception");
+        assertEquals(6, new GameBoard(5, 6).getHeight(), "Width and height may differ");
 
         GameBoard actualBoard = new GameBoard(boardSize, boardSize);
         // Testing that generated actualBoard is correct
@@ -137,6 +147,24 @@ public class GameBoardTest {
         testSquares(expectedSquares, actualBoard.getSquares());
     }
 
+    @Test
+    void testSquareViews() {
+        // Squares handed out by the board write through to the board
+        Position square = actualBoard.getSquare(2, 5);
+        square.registerShip();
+        assertTrue(actualBoard.containsShip(2, 5));
+        actualBoard.fireShot(2, 5);
+        assertTrue(square.getIsHit());
+        assertTrue(actualBoard.getSquares()[2][5].getIsHit());
+        assertThrows(IllegalStateException.class, () -> square.registerHit(),
+                "Test that view refuses to register hit twice");
+        assertEquals(new Position(2, 5), new Position(2, 5));
+        expectedSquares[2][5].registerShip();
+        expectedSquares[2][5].registerHit();
+        assertEquals(expectedSquares[2][5], square);
+        testSquares(expectedSquares, actualBoard.getSquares());
+    }
+
     @Test
     void testValidateCoordinates() {
         // Testing x/y above/over boardSize and all (we think) possible combinations
@@ -166,6 +194,25 @@ public class GameBoardTest {
         testSquares(expectedSquares, actualBoard.getSquares());
     }
 
+    @Test
+    void testResolveShot() {
+        generateShips();
+        for (Integer key : xToYCoordinatesMap.keySet()) {
+            assertEquals(ShotResult.OUT_OF_BOUNDS, actualBoard.resolveShot(key, xToYCoordinatesMap.get(key)));
+        }
+        assertEquals(ShotResult.MISS, actualBoard.resolveShot(0, 0));
+        assertEquals(ShotResult.ALREADY_SHOT, actualBoard.resolveShot(0, 0));
+        assertEquals(ShotResult.HIT, actualBoard.resolveShot(1, 2));
+        assertEquals(ShotResult.HIT, actualBoard.resolveShot(1, 3));
+        assertEquals(ShotResult.SUNK, actualBoard.resolveShot(1, 4));
+        assertEquals(ShotResult.ALREADY_SHOT, actualBoard.resolveShot(1, 4));
+        expectedSquares[0][0].registerHit();
+        for (int y = 2; y < 5; y++) {
+            expectedSquares[1][y].registerHit();
+        }
+        testSquares(expectedSquares, actualBoard.getSquares());
+    }
+
     @Test
     void testIsGameOver() {
         List<int[]> positions = generateShips();
@@ -176,6 +223,29 @@ public class GameBoardTest {
         assertTrue(actualBoard.isGameOver());
     }
 
+    @Test
+    void testSunkShips() {
+        generateShips();
+        assertEquals(ship1.getLength() + ship2.getLength(), actualBoard.getShipSquaresLeft());
+        assertEquals(2, actualBoard.getShipsAfloat());
+        actualBoard.fireShot(0, 0);
+        assertEquals(null, actualBoard.getLastSunkShip());
+        for (int y = 2; y < 2 + ship2.getLength(); y++) {
+            assertEquals(null, actualBoard.getLastSunkShip());
+            actualBoard.fireShot(1, y);
+        }
+        assertEquals(ship2, actualBoard.getLastSunkShip());
+        assertEquals(1, actualBoard.getShipsAfloat());
+        assertEquals(ship1.getLength(), actualBoard.getShipSquaresLeft());
+        actualBoard.fireShot(2, 3);
+        assertEquals(null, actualBoard.getLastSunkShip());
+        assertFalse(actualBoard.isGameOver());
+
+        actualBoard.emptyBoard();
+        assertEquals(0, actualBoard.getShipsAfloat());
+        assertTrue(actualBoard.isGameOver());
+    }
+
     /**
      * Tests placeAllBattleships() method. Here we test if there is expected amounts
      * of squares which contains ship after placing all boats. We do not test for
@@ -209,6 +279,67 @@ public class GameBoardTest {
         }
     }
 
+    @Test
+    void testSharedPlacer() {
+        ShipPlacer placer = ShipPlacer.forThread(6, 6, true);
+        assertSame(placer, ShipPlacer.forThread(6, 6, true));
+        assertNotSame(placer, ShipPlacer.forThread(6, 6, false));
+        assertNotSame(placer, ShipPlacer.forThread(8, 6, true));
+
+        // A listener placing ships while the placer is busy gets another placer
+        List<Battleship> ships = List.of(new Battleship(4), new Battleship(3), new Battleship(2));
+        GameBoard board1 = new GameBoard(6, 6);
+        GameBoard board2 = new GameBoard(6, 6);
+        board1.addListener(new BoardListener() {
+            @Override
+            public void squareChanged(GameBoard board, int x, int y) {
+            }
+
+            @Override
+            public void boardChanged(GameBoard board) {
+                if (board2.getShipsAfloat() == 0)
+                    board2.placeAllBattleships(List.of(new Battleship(4), new Battleship(3), new Battleship(2)));
+            }
+        });
+        board1.placeAllBattleships(ships);
+        assertEquals(3, board1.getShipsAfloat());
+        assertEquals(3, board2.getShipsAfloat());
+        assertEquals(9, board1.getShipSquaresLeft());
+    }
+
+    @Test
+    void testPlaceAllBattleshipsSeeded() {
+        List<Battleship> ships = new ArrayList<>();
+        ships.add(new Battleship(4));
+        ships.add(new Battleship(3));
+        ships.add(new Battleship(2));
+        GameBoard board1 = new GameBoard(6, 6);
+        GameBoard board2 = new GameBoard(6, 6);
+        board1.placeAllBattleships(ships, new SplittableRandom(42));
+        board2.placeAllBattleships(ships, new SplittableRandom(42));
+        assertEquals(board1, board2);
+        assertEquals(ships.size(), board1.getShipsAfloat());
+
+        // Four ships of length 4 must fill a 4x4 board completely
+        List<Battleship> denseFleet = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            denseFleet.add(new Battleship(4));
+        }
+        GameBoard smallBoard = new GameBoard(4, 4);
+        for (int i = 0; i < 50; i++) {
+            smallBoard.placeAllBattleships(denseFleet, new SplittableRandom(i));
+            assertEquals(16, smallBoard.getShipSquaresLeft());
+        }
+
+        denseFleet.add(new Battleship(1));
+        assertThrows(IllegalArgumentException.class, () -> smallBoard.placeAllBattleships(denseFleet),
+                "Fleet with more squares than the board exception");
+        List<Battleship> longShip = new ArrayList<>();
+        longShip.add(new Battleship(5));
+        assertThrows(IllegalArgumentException.class, () -> smallBoard.placeAllBattleships(longShip),
+                "Ship longer than the board exception");
+    }
+
     @Test
     void testResetBoard() {
         generateShips();
@@ -243,6 +374,29 @@ public class GameBoardTest {
 
     }
 
+    @Test
+    void testSerializeTo() {
+        // Two digit coordinates, compared against the original String.format output
+        GameBoard board = new GameBoard(12, 12);
+        board.placeBattleShip(3, 10, ship1, true);
+        board.fireShot(4, 10);
+        board.fireShot(11, 0);
+        String expected = "";
+        for (int x = 0; x < 12; x++) {
+            for (int y = 0; y < 12; y++) {
+                expected += String.format("%d:%d:%s:%s-", x, y, board.isHit(x, y), board.containsShip(x, y));
+            }
+        }
+        StringWriter writer = new StringWriter();
+        try {
+            board.serializeTo(writer);
+        } catch (IOException e) {
+            fail("StringWriter does not throw");
+        }
+        assertEquals(expected, writer.toString());
+        assertEquals(expected, board.serialize());
+    }
+
     @Test
     void testEquals() {
         GameBoard board1 = new GameBoard(5, 5);
@@ -273,4 +427,302 @@ public class GameBoardTest {
         assertNotEquals(board1, board2);
         assertNotEquals(board1, ship1);
     }
+
+    @Test
+    void testRectangularBoard() {
+        GameBoard board = new GameBoard(5, 9);
+        board.placeBattleShip(1, 8, ship1, true);
+        board.placeBattleShip(4, 5, ship2, false);
+        assertThrows(IllegalArgumentException.class, () -> board.placeBattleShip(2, 0, ship1, true),
+                "Out of bounds along x-axis");
+        assertThrows(IllegalArgumentException.class, () -> board.placeBattleShip(0, 7, ship2, false),
+                "Out of bounds along y-axis");
+        for (int x = 0; x < 5; x++) {
+            for (int y = 0; y < 9; y++) {
+                boolean ship = (y == 8 && x >= 1) || (x == 4 && y >= 5 && y < 8);
+                assertEquals(ship, board.containsShip(x, y), String.format("(%d, %d)", x, y));
+            }
+        }
+        for (int x = 1; x < 5; x++) {
+            board.fireShot(x, 8);
+        }
+        assertEquals(ship1, board.getLastSunkShip());
+        assertEquals(3, board.getShipSquaresLeft());
+
+        board.placeAllBattleships(List.of(ship1, ship2, new Battleship(5)), new SplittableRandom(3));
+        assertEquals(12, board.getShipSquaresLeft());
+    }
+
+    @Test
+    void testSparseBoard() {
+        GameBoard board = new GameBoard(100_000, 100_000);
+        assertTrue(board.isSparse(), "Huge boards should be sparse by default");
+        assertFalse(new GameBoard(100, 100).isSparse());
+
+        List<Battleship> fleet = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            fleet.add(new Battleship(2 + i % 4));
+        }
+        board.placeAllBattleships(fleet, new SplittableRandom(5));
+        assertEquals(140, board.getShipSquaresLeft());
+        assertEquals(40, board.getShipsAfloat());
+
+        board.placeBattleShip(99_996, 99_999, ship1, true);
+        assertThrows(IllegalStateException.class, () -> board.placeBattleShip(99_999, 99_996, ship1, false),
+                "Occupied square exception");
+        assertEquals(ShotResult.MISS, board.resolveShot(0, 99_999));
+        for (int x = 99_996; x < 100_000; x++) {
+            assertTrue(board.containsShip(x, 99_999));
+            board.fireShot(x, 99_999);
+        }
+        assertEquals(ship1, board.getLastSunkShip());
+        assertEquals(99_999L * 100_000 + 99_999, board.getShotSquare(board.getShotCount() - 1));
+
+        GameBoard copy = board.copy();
+        assertTrue(copy.isSparse());
+        assertEquals(board, copy);
+        copy.fireShot(50_000, 50_000);
+        assertNotEquals(board, copy);
+    }
+
+    @Test
+    void testSparseEqualsDense() {
+        GameBoard dense = new GameBoard(20, 30, false);
+        GameBoard sparse = new GameBoard(20, 30, true);
+        dense.placeAllBattleships(List.of(ship1, ship2), new SplittableRandom(8));
+        sparse.placeAllBattleships(List.of(ship1, ship2), new SplittableRandom(8));
+        dense.fireShot(19, 29);
+        sparse.fireShot(19, 29);
+        assertEquals(dense, sparse);
+        assertEquals(sparse, dense);
+        assertEquals(dense.serialize(), sparse.serialize());
+
+        GameBoard loaded = new GameBoard(20, 30, true);
+        loaded.loadMasks(dense.getShipMask(), dense.getHitMask());
+        assertEquals(dense, loaded);
+        assertEquals(dense.getShipSquaresLeft(), loaded.getShipSquaresLeft());
+        sparse.fireShot(0, 0);
+        assertNotEquals(dense, sparse);
+    }
+
+    @Test
+    void testFork() {
+        GameBoard board = new GameBoard(10, 10);
+        board.placeAllBattleships(List.of(ship1, ship2), new SplittableRandom(4));
+        board.fireShot(9, 9);
+        String before = board.serialize();
+
+        GameBoard fork = board.fork();
+        assertEquals(board, fork);
+        assertEquals(board.getShotCount(), fork.getShotCount());
+
+        // Sinking a ship on the fork does not change the board
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 10; y++) {
+                if (fork.containsShip(x, y) && !fork.isHit(x, y))
+                    fork.fireShot(x, y);
+            }
+        }
+        assertTrue(fork.isGameOver());
+        assertEquals(0, fork.getShipsAfloat());
+        assertEquals(before, board.serialize());
+        assertEquals(2, board.getShipsAfloat());
+        assertEquals(1, board.getShotCount());
+
+        // Nor the other way around, also for forks of forks
+        int forkShots = fork.getShotCount();
+        GameBoard forkOfFork = fork.fork();
+        board.fireShot(0, 0);
+        fork.emptyBoard();
+        assertTrue(board.isHit(0, 0));
+        assertTrue(forkOfFork.isGameOver());
+        assertEquals(forkShots, forkOfFork.getShotCount());
+        assertEquals(0, fork.getShotCount());
+        assertEquals(ShotResult.MISS, fork.resolveShot(0, 0));
+        assertFalse(board.copy().equals(fork));
+    }
+
+    @Test
+    void testForkThenEmpty() {
+        GameBoard board = new GameBoard(30, 30);
+        for (int square = 0; square < 600; square++) {
+            board.fireShot(square / 30, square % 30);
+        }
+        GameBoard fork = board.fork();
+        board.emptyBoard();
+        board.fireShot(29, 29);
+        assertEquals(0, fork.getShotSquare(0));
+        assertEquals(599, fork.getShotSquare(599));
+        assertEquals(899, board.getShotSquare(0));
+
+        // Loading masks empties the board first
+        GameBoard loaded = fork.fork();
+        loaded.loadMasks(new GameBoard(30, 30).getShipMask(), board.getHitMask());
+        assertEquals(1, loaded.getShotCount());
+        assertEquals(0, fork.getShotSquare(0));
+        assertEquals(600, fork.getShotCount());
+
+        // The full chunks stay shared after the board owns its other arrays again
+        GameBoard parent = new GameBoard(30, 30);
+        for (int square = 0; square < 600; square++) {
+            parent.fireShot(square / 30, square % 30);
+        }
+        GameBoard child = parent.fork();
+        parent.fireShot(20, 0);
+        parent.emptyBoard();
+        parent.fireShot(29, 28);
+        assertEquals(0, child.getShotSquare(0));
+        assertEquals(600, child.getShotCount());
+        assertEquals(898, parent.getShotSquare(0));
+    }
+
+    @Test
+    void testForkSparseBoard() {
+        GameBoard board = new GameBoard(100_000, 100_000);
+        board.placeBattleShip(50_000, 50_000, ship1, true);
+        List<GameBoard> forks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            GameBoard fork = board.fork();
+            fork.fireShot(i, i);
+            forks.add(fork);
+        }
+        assertEquals(0, board.getShotCount());
+        for (int i = 0; i < 1000; i++) {
+            GameBoard fork = forks.get(i);
+            assertTrue(fork.isHit(i, i));
+            assertFalse(fork.isHit(i + 1, i + 1));
+            assertTrue(fork.containsShip(50_003, 50_000));
+        }
+        board.fireShot(50_000, 50_000);
+        assertFalse(forks.get(0).isHit(50_000, 50_000));
+        assertEquals(4, forks.get(0).getShipSquaresLeft());
+    }
+
+    @Test
+    void testZobristHash() {
+        GameBoard placed = new GameBoard(8, 8, false);
+        placed.placeBattleShip(1, 2, ship1, true);
+        placed.fireShot(2, 2);
+        placed.fireShot(7, 7);
+        assertNotEquals(0, placed.getZobristHash());
+
+        // The same squares set up in another order and storage give the same hash
+        GameBoard registered = new GameBoard(8, 8, true);
+        registered.getSquare(7, 7).registerHit();
+        registered.getSquare(2, 2).registerHit();
+        for (int x = 4; x >= 1; x--) {
+            registered.getSquare(x, 2).registerShip();
+        }
+        assertEquals(placed.getZobristHash(), registered.getZobristHash());
+        assertEquals(placed.getKnownHash(), registered.getKnownHash());
+        assertEquals(placed, registered);
+        GameBoard loaded = new GameBoard(8, 8);
+        loaded.loadMasks(placed.getShipMask(), placed.getHitMask());
+        assertEquals(placed.getZobristHash(), loaded.getZobristHash());
+        assertEquals(placed.getKnownHash(), loaded.getKnownHash());
+        assertEquals(placed.getZobristHash(), placed.copy().getZobristHash());
+        assertEquals(placed.getZobristHash(), placed.fork().getZobristHash());
+
+        GameBoard other = placed.fork();
+        other.fireShot(0, 0);
+        assertNotEquals(placed.getZobristHash(), other.getZobristHash());
+        assertNotEquals(placed, other);
+        other.emptyBoard();
+        assertEquals(0, other.getZobristHash());
+        assertEquals(0, other.getKnownHash());
+    }
+
+    @Test
+    void testKnownHash() {
+        // Ships that are not hit do not change what the opponent knows
+        GameBoard board1 = new GameBoard(8, 8);
+        GameBoard board2 = new GameBoard(8, 8);
+        board1.placeBattleShip(0, 0, ship2, false);
+        board2.placeBattleShip(5, 5, ship2, false);
+        board1.fireShot(7, 0);
+        board2.fireShot(7, 0);
+        assertNotEquals(board1.getZobristHash(), board2.getZobristHash());
+        assertEquals(board1.getKnownHash(), board2.getKnownHash());
+
+        // A hit on a ship differs from a miss, and sinking differs from hitting
+        board1.fireShot(0, 0);
+        board2.fireShot(0, 0);
+        assertNotEquals(board1.getKnownHash(), board2.getKnownHash());
+        board2.placeBattleShip(0, 0, ship2, false);
+        assertEquals(board1.getKnownHash(), board2.getKnownHash());
+        board1.fireShot(0, 1);
+        board1.fireShot(0, 2);
+        assertEquals(0, board1.getShipsAfloat());
+        GameBoard loaded = new GameBoard(8, 8);
+        loaded.loadMasks(board1.getShipMask(), board1.getHitMask());
+        assertNotEquals(board1.getKnownHash(), loaded.getKnownHash());
+        assertEquals(board1.getZobristHash(), loaded.getZobristHash());
+    }
+
+    @Test
+    void testHashCode() {
+        GameBoard dense = new GameBoard(20, 30, false);
+        GameBoard sparse = new GameBoard(20, 30, true);
+        dense.placeAllBattleships(List.of(ship1, ship2), new SplittableRandom(8));
+        sparse.placeAllBattleships(List.of(ship1, ship2), new SplittableRandom(8));
+        assertEquals(dense.hashCode(), sparse.hashCode());
+        assertNotEquals(dense.hashCode(), new GameBoard(30, 20).hashCode());
+
+        // Boards can key hash maps, forks and copies find the same entry
+        HashMap<GameBoard, String> boards = new HashMap<>();
+        boards.put(dense, "dense");
+        assertEquals("dense", boards.get(sparse));
+        GameBoard fork = dense.fork();
+        assertEquals("dense", boards.get(fork));
+        fork.fireShot(0, 0);
+        assertNull(boards.get(fork));
+        dense.fork().fireShot(0, 0);
+        assertEquals("dense", boards.get(dense.copy()));
+        GameBoard forkOfFork = fork.fork();
+        assertEquals(fork, forkOfFork);
+        forkOfFork.fireShot(19, 29);
+        assertNotEquals(fork, forkOfFork);
+    }
+
+    @Test
+    void testListeners() {
+        List<String> events = new ArrayList<>();
+        BoardListener listener = new BoardListener() {
+            @Override
+            public void squareChanged(GameBoard board, int x, int y) {
+                // The board has changed when the listener is called
+                events.add(x + "," + y + ":" + board.getSquare(x, y));
+            }
+
+            @Override
+            public void boardChanged(GameBoard board) {
+                events.add("board");
+            }
+        };
+        actualBoard.addListener(listener);
+        actualBoard.placeBattleShip(1, 2, ship2, false);
+        assertEquals(List.of("1,2:" + actualBoard.getSquare(1, 2), "1,3:" + actualBoard.getSquare(1, 3),
+                "1,4:" + actualBoard.getSquare(1, 4)), events);
+        assertEquals(1, actualBoard.getShipsAfloat());
+
+        events.clear();
+        actualBoard.fireShot(0, 0);
+        actualBoard.getSquare(5, 5).registerShip();
+        assertEquals(List.of("0,0:" + actualBoard.getSquare(0, 0), "5,5:" + actualBoard.getSquare(5, 5)), events);
+
+        // Bulk changes are one event, and forks do not tell the listeners
+        events.clear();
+        actualBoard.fork().fireShot(1, 1);
+        actualBoard.copy().emptyBoard();
+        assertTrue(events.isEmpty());
+        actualBoard.loadMasks(actualBoard.getShipMask(), actualBoard.getHitMask());
+        assertTrue(events.stream().allMatch("board"::equals));
+        assertFalse(events.isEmpty());
+
+        events.clear();
+        actualBoard.removeListener(listener);
+        actualBoard.fireShot(1, 1);
+        actualBoard.emptyBoard();
+        assertTrue(events.isEmpty());
+    }
 }
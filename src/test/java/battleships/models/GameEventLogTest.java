@@ -0,0 +1,140 @@
+package battleships.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class GameEventLogTest {
+
+    private GameEventLog log;
+    // Next square each player shoots at
+    private int[] next;
+
+    @BeforeEach
+    void init() {
+        log = new GameEventLog(new Game(6, 6), 64, 4);
+        SplittableRandom random = new SplittableRandom(1);
+        log.randomizeCurrentBoard(random);
+        log.submitBoard("Kåre");
+        log.randomizeCurrentBoard(random);
+        log.submitBoard("Gunnar");
+        next = new int[2];
+    }
+
+    /** Shoots the squares in order, switching player when out of shots */
+    private void play(int shots) {
+        for (int i = 0; i < shots; i++) {
+            Game game = log.getGame();
+            int player = game.getCurrentPlayer() == game.getPlayer1() ? 0 : 1;
+            int square = next[player]++;
+            assertTrue(log.fireShot(square / 6, square % 6).isFired());
+            if (game.getCurrentPlayer().getShotsLeft() == 0)
+                log.switchPlayer();
+        }
+    }
+
+    @Test
+    void testConstructor() {
+        assertThrows(IllegalArgumentException.class, () -> new GameEventLog(new Game(6, 6), 8, 0),
+                "No snapshot interval exception");
+        assertThrows(IllegalArgumentException.class, () -> new GameEventLog(new Game(6, 6), 8, 9),
+                "Snapshot interval larger than capacity exception");
+        assertEquals(2, log.getPosition());
+        assertEquals(0, log.getOldestPosition());
+        assertEquals("Gunnar", log.getGame().getPlayer2().getName());
+        assertFalse(log.getGame().getIsPlacementPhase());
+    }
+
+    @Test
+    void testEvents() {
+        assertEquals(ShotResult.OUT_OF_BOUNDS, log.fireShot(6, 0));
+        assertEquals(2, log.getPosition(), "Shots that are not fired are not logged");
+        log.fireShot(4, 5);
+        long event = log.getEvent(2);
+        assertEquals(GameEventLog.FIRE, GameEventLog.getType(event));
+        assertEquals(4, GameEventLog.getX(event));
+        assertEquals(5, GameEventLog.getY(event));
+        assertEquals(GameEventLog.SUBMIT, GameEventLog.getType(log.getEvent(0)));
+        assertEquals("Kåre", log.getSubmittedName(log.getEvent(0)));
+        assertThrows(IllegalArgumentException.class, () -> log.getEvent(3), "No event exception");
+    }
+
+    @Test
+    void testReplayAndRestore() {
+        List<Long> positions = new ArrayList<>();
+        List<String> states = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            positions.add(log.getPosition());
+            states.add(log.getGame().serialize());
+            play(1);
+        }
+        for (int i = 0; i < positions.size(); i++) {
+            Game replayed = log.replay(positions.get(i));
+            assertNotSame(log.getGame(), replayed);
+            assertEquals(states.get(i), replayed.serialize());
+        }
+        assertEquals(log.getGame().serialize(), log.replay(log.getPosition()).serialize());
+
+        Game before = log.replay(10);
+        log.restore(10);
+        assertEquals(10, log.getPosition());
+        assertEquals(before.serialize(), log.getGame().serialize());
+        assertThrows(IllegalArgumentException.class, () -> log.restore(11), "Restore to dropped event exception");
+
+        // The log goes on from the restored position
+        log.switchPlayer();
+        assertEquals(11, log.getPosition());
+        assertEquals(GameEventLog.SWITCH, GameEventLog.getType(log.getEvent(10)));
+    }
+
+    @Test
+    void testUndo() {
+        String before = log.getGame().serialize();
+        GameBoard board = log.getGame().getPlayer2().getFriendlyBoard();
+        log.fireShot(0, 0);
+        assertTrue(board.isHit(0, 0));
+        log.undo();
+        assertFalse(log.getGame().getPlayer2().getFriendlyBoard().isHit(0, 0));
+        assertEquals(3, log.getGame().getCurrentPlayer().getShotsLeft());
+        assertEquals(before, log.getGame().serialize());
+
+        log.undo();
+        log.undo();
+        assertTrue(log.getGame().getIsPlacementPhase());
+        assertEquals(0, log.getPosition());
+        assertThrows(IllegalStateException.class, () -> log.undo(), "Nothing to undo exception");
+    }
+
+    @Test
+    void testRingBuffer() {
+        GameEventLog small = new GameEventLog(new Game(6, 6), 8, 3);
+        SplittableRandom random = new SplittableRandom(2);
+        small.randomizeCurrentBoard(random);
+        small.submitBoard("Kåre");
+        small.randomizeCurrentBoard(random);
+        small.submitBoard("Gunnar");
+        for (int i = 0; i < 20; i++) {
+            small.switchPlayer();
+        }
+        assertEquals(22, small.getPosition());
+        assertTrue(small.getOldestPosition() >= 22 - 8, "Overwritten events can not be reached");
+        assertTrue(small.getOldestPosition() > 22 - 8 - 3);
+        assertThrows(IllegalArgumentException.class, () -> small.replay(small.getOldestPosition() - 1));
+        Game oldest = small.replay(small.getOldestPosition());
+        boolean player1 = small.getOldestPosition() % 2 == 0;
+        assertEquals(player1, oldest.getCurrentPlayer() == oldest.getPlayer1());
+        while (small.getPosition() > small.getOldestPosition()) {
+            small.undo();
+        }
+        assertThrows(IllegalStateException.class, () -> small.undo());
+    }
+}
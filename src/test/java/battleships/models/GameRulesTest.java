@@ -0,0 +1,88 @@
+package battleships.models;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class GameRulesTest {
+
+    @Test
+    void testConstructor() {
+        int[] fleet = { 4, 3, 2 };
+        GameRules rules = new GameRules(6, 7, fleet, 3, true);
+        fleet[0] = 1;
+        assertArrayEquals(new int[] { 4, 3, 2 }, rules.getFleet(), "Rules keep their own copy of the fleet");
+        assertEquals(3, rules.getShipCount());
+        assertEquals(2, rules.getShipLength(2));
+        assertEquals(6, rules.getBoardWidth());
+        assertEquals(7, rules.getBoardHeight());
+
+        assertThrows(IllegalArgumentException.class, () -> new GameRules(3, 6, new int[] { 2 }, 3, true),
+                "Board smaller than minimum exception");
+        assertThrows(IllegalArgumentException.class, () -> new GameRules(6, 6, new int[] { 2 }, 0, true),
+                "No shots per turn exception");
+        assertThrows(IllegalArgumentException.class, () -> new GameRules(6, 6, new int[0], 3, true),
+                "No ships exception");
+        assertThrows(IllegalArgumentException.class, () -> new GameRules(6, 6, new int[] { 7 }, 3, true),
+                "Too long ship exception");
+        assertThrows(IllegalArgumentException.class, () -> new GameRules(4, 4, new int[] { 4, 4, 4, 4, 1 }, 3, true),
+                "Fleet bigger than board exception");
+        new GameRules(4, 4, new int[] { 4, 4, 4, 4 }, 3, true);
+        assertThrows(IllegalArgumentException.class, () -> new GameRules(4, 4, new int[] { 4, 4, 4 }, 3, false),
+                "Fleet can not avoid touching exception");
+        new GameRules(4, 4, new int[] { 4, 4 }, 3, false);
+    }
+
+    @Test
+    void testWithBoardSize() {
+        GameRules rules = GameUtils.DEFAULT_RULES;
+        assertSame(rules, rules.withBoardSize(6, 6));
+        GameRules bigger = rules.withBoardSize(10, 8);
+        assertEquals(10, bigger.getBoardWidth());
+        assertEquals(8, bigger.getBoardHeight());
+        assertArrayEquals(rules.getFleet(), bigger.getFleet());
+        assertEquals(rules.getShotsPerTurn(), bigger.getShotsPerTurn());
+        assertThrows(IllegalArgumentException.class, () -> rules.withBoardSize(2, 2));
+    }
+
+    @Test
+    void testWithShotsPerTurn() {
+        GameRules rules = GameUtils.DEFAULT_RULES;
+        assertSame(rules, rules.withShotsPerTurn(3));
+        GameRules more = rules.withShotsPerTurn(5);
+        assertEquals(5, more.getShotsPerTurn());
+        assertEquals(rules.getBoardWidth(), more.getBoardWidth());
+        assertArrayEquals(rules.getFleet(), more.getFleet());
+        assertThrows(IllegalArgumentException.class, () -> rules.withShotsPerTurn(0));
+    }
+
+    @Test
+    void testCreateFleet() {
+        List<Battleship> fleet1 = GameUtils.DEFAULT_RULES.createFleet();
+        List<Battleship> fleet2 = GameUtils.DEFAULT_RULES.createFleet();
+        assertEquals(3, fleet1.size());
+        for (int i = 0; i < fleet1.size(); i++) {
+            assertEquals(GameUtils.DEFAULT_RULES.getShipLength(i), fleet1.get(i).getLength());
+            assertNotSame(fleet1.get(i), fleet2.get(i), "Every game gets its own ships");
+        }
+    }
+
+    @Test
+    void testEquals() {
+        GameRules rules = new GameRules(6, 6, new int[] { 4, 3, 2 }, 3, true);
+        assertEquals(GameUtils.DEFAULT_RULES, rules);
+        assertEquals(GameUtils.DEFAULT_RULES.hashCode(), rules.hashCode());
+        assertNotEquals(rules, new GameRules(6, 6, new int[] { 4, 3, 2 }, 3, false));
+        assertNotEquals(rules, new GameRules(6, 6, new int[] { 4, 3, 2 }, 2, true));
+        assertNotEquals(rules, new GameRules(6, 6, new int[] { 4, 3 }, 3, true));
+        assertNotEquals(rules, new GameRules(6, 7, new int[] { 4, 3, 2 }, 3, true));
+        assertNotEquals(rules, null);
+    }
+}
@@ -7,7 +7,10 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,8 +28,7 @@ public class GameTest {
 
     @Test
     void testConstructor() {
-        assertThrows(IllegalArgumentException.class, () -> new Game(4, 7),
-                "Board width and height not equal exception");
+        assertEquals(7, new Game(4, 7).getBoardHeight(), "Board width and height may differ");
         assertThrows(IllegalArgumentException.class, () -> new Game(3, 3),
                 "Board width and height smaller than minimum");
 
@@ -60,6 +62,38 @@ public class GameTest {
         assertFalse(game.getIsPlacementPhase());
         assertEquals(width, game.getBoardWidth());
         assertEquals(height, game.getBoardHeight());
+        assertEquals(battleships.size(), game.getBattleships().size(), "Loaded games know their fleet");
+        assertEquals(GameUtils.DEFAULT_RULES, game.getRules());
+    }
+
+    @Test
+    void testRules() {
+        GameRules rules = new GameRules(8, 5, new int[] { 5, 4, 3, 3, 2 }, 2, false);
+        Game game = new Game(rules);
+        assertEquals(rules, game.getRules());
+        assertEquals(8, game.getBoardWidth());
+        assertEquals(5, game.getBoardHeight());
+        assertEquals(2, game.getPlayer1().getMaxShots());
+        assertEquals(5, game.getBattleships().size());
+
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < 20; i++) {
+            game = new Game(rules);
+            game.randomizeCurrentBoard(random);
+            GameBoard board = game.getPlayer1().getFriendlyBoard();
+            assertEquals(17, board.getShipSquaresLeft());
+            assertEquals(5, board.getShipsAfloat());
+            // A straight ship has no squares diagonally next to each other, so such
+            // squares would belong to two ships touching
+            for (int x = 0; x + 1 < 8; x++) {
+                for (int y = 0; y + 1 < 5; y++) {
+                    assertFalse(board.containsShip(x, y) && board.containsShip(x + 1, y + 1));
+                    assertFalse(board.containsShip(x + 1, y) && board.containsShip(x, y + 1));
+                }
+            }
+        }
+        assertEquals(17, game.copy().getPlayer1().getFriendlyBoard().getShipSquaresLeft());
+        assertEquals(rules, game.copy().getRules());
     }
 
     @Test
@@ -230,4 +264,85 @@ public class GameTest {
         game1.getCurrentPlayer().getEnemyBoard().getSquare(1, 1).registerHit();
         assertEquals(game1, game2);
     }
+
+    @Test
+    void testCopy() {
+        game.randomizeCurrentBoard();
+        game.submitBoard("Kåre");
+        game.randomizeCurrentBoard();
+        game.submitBoard("Gunnar");
+        game.fireShot(1, 1);
+
+        Game copy = game.copy();
+        assertEquals(game, copy);
+        assertEquals(1, copy.getPlayer2().getFriendlyBoard().getShotCount());
+        assertTrue(copy.getCurrentPlayer() == copy.getPlayer1());
+
+        // The copy does not change with the game
+        game.fireShot(2, 2);
+        assertNotEquals(game, copy);
+        assertFalse(copy.getPlayer2().getFriendlyBoard().isHit(2, 2));
+        copy.fireShot(2, 2);
+        assertEquals(game, copy);
+    }
+
+    @Test
+    void testFork() {
+        game.randomizeCurrentBoard();
+        game.submitBoard("Kåre");
+        game.randomizeCurrentBoard();
+        game.submitBoard("Gunnar");
+        game.fireShot(1, 1);
+
+        Game fork = game.fork();
+        assertEquals(game.serialize(), fork.serialize());
+        game.fireShot(2, 2);
+        assertFalse(fork.getPlayer2().getFriendlyBoard().isHit(2, 2));
+        fork.fireShot(3, 3);
+        assertFalse(game.getPlayer2().getFriendlyBoard().isHit(3, 3));
+        assertEquals(1, game.getCurrentPlayer().getShotsLeft());
+        assertEquals(1, fork.getCurrentPlayer().getShotsLeft());
+    }
+
+    @Test
+    void testZobristHash() {
+        Game other = new Game(width, height);
+        assertEquals(game.getZobristHash(), other.getZobristHash());
+        game.randomizeCurrentBoard(new SplittableRandom(3));
+        game.submitBoard("Kåre");
+        assertNotEquals(game.getZobristHash(), other.getZobristHash());
+        other.randomizeCurrentBoard(new SplittableRandom(3));
+        other.submitBoard("Gunnar");
+        assertEquals(game.getZobristHash(), other.getZobristHash());
+
+        game.randomizeCurrentBoard(new SplittableRandom(4));
+        game.submitBoard("Gunnar");
+        Game copy = game.copy();
+        assertEquals(game.getZobristHash(), copy.getZobristHash());
+        game.fireShot(1, 1);
+        assertNotEquals(game.getZobristHash(), copy.getZobristHash());
+        copy.fireShot(1, 1);
+        assertEquals(game.getZobristHash(), copy.getZobristHash());
+        copy.switchPlayer();
+        assertNotEquals(game.getZobristHash(), copy.getZobristHash());
+    }
+
+    @Test
+    void testHashCode() {
+        game.randomizeCurrentBoard(new SplittableRandom(3));
+        game.submitBoard("Kåre");
+        game.randomizeCurrentBoard(new SplittableRandom(4));
+        game.submitBoard("Gunnar");
+
+        // Copies of the same state are deduplicated, other states are kept
+        Set<Game> states = new HashSet<>();
+        states.add(game.copy());
+        states.add(game.fork());
+        assertEquals(1, states.size());
+        game.fireShot(1, 1);
+        assertTrue(states.add(game.copy()));
+        assertFalse(states.add(game.fork()));
+        assertEquals(2, states.size());
+        assertTrue(states.contains(game));
+    }
 }
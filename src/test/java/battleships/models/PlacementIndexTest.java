@@ -0,0 +1,97 @@
+package battleships.models;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+public class PlacementIndexTest {
+
+    @Test
+    void testOf() {
+        assertSame(PlacementIndex.of(6, 6, 4), PlacementIndex.of(6, 6, 4));
+        assertEquals(3, PlacementIndex.of(7, 5, 3).getLength());
+        assertThrows(IllegalArgumentException.class, () -> PlacementIndex.of(6, 6, 0),
+                "Ship length not positive exception");
+        assertThrows(IllegalArgumentException.class, () -> PlacementIndex.of(0, 6, 2),
+                "Board width not positive exception");
+    }
+
+    @Test
+    void testFits() {
+        PlacementIndex index = PlacementIndex.of(6, 8, 4);
+        assertTrue(index.fits(2, 7, true));
+        assertFalse(index.fits(3, 7, true));
+        assertTrue(index.fits(5, 4, false));
+        assertFalse(index.fits(5, 5, false));
+        assertFalse(index.fits(-1, 0, true));
+        assertFalse(index.fits(0, 8, true));
+    }
+
+    @Test
+    void testMasksMatchSquares() {
+        SplittableRandom random = new SplittableRandom(11);
+        // Heights around the word size, where ships along the x-axis share words
+        // in different ways
+        for (int height : new int[] { 1, 6, 63, 64, 65, 100 }) {
+            int width = 12;
+            int words = (width * height + 63) >>> 6;
+            for (int length = 1; length <= 5; length++) {
+                PlacementIndex index = PlacementIndex.of(width, height, length);
+                long[] mask = new long[words];
+                for (int i = 0; i < words; i++) {
+                    // Sparse, so some placements are free
+                    mask[i] = random.nextLong() & random.nextLong() & random.nextLong();
+                }
+                for (int x = 0; x < width; x++) {
+                    for (int y = 0; y < height; y++) {
+                        for (boolean alongX : new boolean[] { true, false }) {
+                            if (!index.fits(x, y, alongX))
+                                continue;
+                            int start = x * height + y;
+                            int step = alongX ? height : 1;
+                            int set = 0;
+                            long[] marked = mask.clone();
+                            for (int j = 0; j < length; j++) {
+                                int square = start + j * step;
+                                if ((mask[square >>> 6] & (1L << square)) != 0)
+                                    set++;
+                                marked[square >>> 6] |= 1L << square;
+                            }
+                            assertEquals(set, index.countSet(mask, start, alongX));
+                            assertEquals(set == 0, index.isFree(mask, start, alongX));
+                            long[] actual = mask.clone();
+                            index.mark(actual, start, alongX);
+                            assertArrayEquals(marked, actual);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testTallBoard() {
+        // Heights above 2^21 must not share an index with another board size
+        PlacementIndex small = PlacementIndex.of(11, 10, 3);
+        PlacementIndex tall = PlacementIndex.of(10, 2_097_162, 3);
+        assertNotSame(small, tall);
+        assertTrue(tall.fits(0, 2_097_159, false));
+        assertFalse(small.fits(0, 2_097_159, false));
+
+        GameBoard board = new GameBoard(10, 2_097_162);
+        board.placeBattleShip(0, 0, new Battleship(3), true);
+        for (int x = 0; x < 3; x++) {
+            assertTrue(board.containsShip(x, 0));
+        }
+        assertFalse(board.containsShip(0, 10));
+        assertFalse(board.containsShip(0, 20));
+    }
+}
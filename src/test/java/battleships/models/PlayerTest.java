@@ -37,6 +37,14 @@ public class PlayerTest {
                 "Tests empty name string");
         assertThrows(IllegalArgumentException.class, () -> new Player("     ", friendlyBoard, enemyBoard),
                 "Tests whitespace name string");
+        assertThrows(IllegalArgumentException.class, () -> new Player("Kåre", friendlyBoard, enemyBoard, 0),
+                "No shots per turn exception");
+
+        Player salvoPlayer = new Player("Kåre", friendlyBoard, enemyBoard, 5);
+        assertEquals(5, salvoPlayer.getMaxShots());
+        salvoPlayer.setShots(0);
+        salvoPlayer.fillShots();
+        assertEquals(5, salvoPlayer.getShotsLeft());
     }
 
     @Test
@@ -80,6 +88,19 @@ public class PlayerTest {
                 "Shoot same position twice exception");
     }
 
+    @Test
+    void testResolveShot() {
+        enemyBoard.placeBattleShip(1, 1, new Battleship(2), true);
+        assertEquals(ShotResult.OUT_OF_BOUNDS, player.resolveShot(boardWidth, boardHeight));
+        assertEquals(ShotResult.MISS, player.resolveShot(0, 0));
+        assertEquals(ShotResult.ALREADY_SHOT, player.resolveShot(0, 0));
+        assertEquals(ShotResult.HIT, player.resolveShot(1, 1));
+        assertEquals(player.getMaxShots() - 2, player.getShotsLeft());
+        assertEquals(ShotResult.SUNK, player.resolveShot(2, 1));
+        assertEquals(ShotResult.NO_SHOTS_LEFT, player.resolveShot(3, 3));
+        assertFalse(enemyBoard.isHit(3, 3));
+    }
+
     @Test
     void testEquals() {
         Player player2 = new Player("Gunnar", friendlyBoard, enemyBoard);
@@ -98,5 +119,22 @@ public class PlayerTest {
         assertTrue(player.valueEquals(player2));
         player2 = new Player("Kåre", friendlyBoard, enemyBoard);
         assertTrue(player.valueEquals(player2));
+
+        // The friendly boards are compared to each other
+        friendlyBoard.placeBattleShip(0, 0, new Battleship(2), true);
+        player2 = new Player("Kåre", enemyBoard, friendlyBoard);
+        assertFalse(player.valueEquals(player2));
+        player2 = new Player("Kåre", friendlyBoard.copy(), enemyBoard);
+        assertTrue(player.valueEquals(player2));
+    }
+
+    @Test
+    void testHashCode() {
+        Player player2 = new Player("Kåre", friendlyBoard, enemyBoard);
+        assertEquals(player.hashCode(), player2.hashCode());
+        player2.setShots(2);
+        assertNotEquals(player.hashCode(), player2.hashCode());
+        player.setShots(2);
+        assertEquals(player.hashCode(), player2.hashCode());
     }
 }
@@ -108,4 +108,22 @@ public class PositionTest {
         Battleship ship = new Battleship(3);
         assertNotEquals(pos1, ship);
     }
+
+    @Test
+    void testHashCode() {
+        Position pos1 = new Position(2, 3);
+        Position pos2 = new Position(2, 3);
+        assertEquals(pos1.hashCode(), pos2.hashCode());
+        pos1.registerHit();
+        assertNotEquals(pos1.hashCode(), pos2.hashCode());
+
+        // A view hashes like a standalone position in the same state
+        GameBoard board = new GameBoard(4, 4);
+        Position view = board.getSquare(2, 3);
+        assertEquals(pos2.hashCode(), view.hashCode());
+        view.registerHit();
+        assertEquals(pos1, view);
+        assertEquals(pos1.hashCode(), view.hashCode());
+        assertNotEquals(new Position(3, 2).hashCode(), new Position(2, 3).hashCode());
+    }
 }
@@ -0,0 +1,179 @@
+package battleships.models.filemanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import battleships.models.Game;
+
+public class AsyncFileHandlerTest {
+
+    @TempDir
+    File folder;
+
+    private JournalFileHandler journal;
+    private AsyncFileHandler fileHandler;
+    private Game game;
+
+    @BeforeEach
+    void init() {
+        journal = new JournalFileHandler(folder, 8, 1 << 20);
+        fileHandler = new AsyncFileHandler(journal);
+        game = new Game(6, 6);
+        game.randomizeCurrentBoard();
+        game.submitBoard("Kåre");
+        game.randomizeCurrentBoard();
+        game.submitBoard("Gunnar");
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        fileHandler.close();
+        journal.close();
+    }
+
+    @Test
+    void testWriteAndRead() throws Exception {
+        fileHandler.writeGameState("game1", game);
+        // Changes after the write are not saved
+        game.fireShot(0, 0);
+        Game loaded = fileHandler.readGameState("game1");
+        assertFalse(loaded.getPlayer2().getFriendlyBoard().isHit(0, 0));
+
+        fileHandler.writeGameState("game1", game);
+        assertEquals(game, fileHandler.readGameState("game1"));
+        fileHandler.deleteSave("game1");
+        assertFalse(fileHandler.gameIsSaved("game1"));
+
+        fileHandler.writeGameState("game1", game);
+        fileHandler.flush();
+        assertEquals(game, journal.readGameState("game1"));
+    }
+
+    @Test
+    void testCoalescing() throws Exception {
+        BlockingFileHandler blocking = new BlockingFileHandler();
+        AsyncFileHandler async = new AsyncFileHandler(blocking);
+        async.writeGameState("game1", game);
+        blocking.started.await();
+
+        // The writer is busy with the first save, so these are merged into one
+        for (int y = 0; y < 6; y++) {
+            if (game.getCurrentPlayer().getShotsLeft() == 0)
+                game.switchPlayer();
+            game.fireShot(1, y % 3);
+            async.writeGameState("game1", game);
+        }
+        blocking.release.countDown();
+        async.flush();
+        assertEquals(2, blocking.written.size());
+        assertEquals(game, blocking.written.get(1));
+        async.close();
+        assertThrows(IllegalStateException.class, () -> async.writeGameState("game1", game),
+                "Closed file handler exception");
+    }
+
+    @Test
+    void testFailure() throws Exception {
+        AsyncFileHandler async = new AsyncFileHandler(new FileHandler());
+        // FileHandler cannot write to a folder that does not exist
+        async.writeGameState("missingfolder/game1", game);
+        assertThrows(IOException.class, () -> async.flush(), "Failed write exception");
+        async.flush();
+        async.close();
+    }
+
+    @Test
+    void testFailureOnNextWrite() throws Exception {
+        FailingFileHandler failing = new FailingFileHandler();
+        AsyncFileHandler async = new AsyncFileHandler(failing);
+        async.writeGameState("game1", game);
+        assertFalse(async.gameIsSaved("game1"));
+
+        // The failed write is reported by the next save, which is still queued
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> async.writeGameState("game1", game), "Earlier failed write exception");
+        assertTrue(ex.getCause() instanceof FileNotFoundException);
+        assertTrue(async.gameIsSaved("game1"));
+        async.flush();
+        async.close();
+    }
+
+    /** Fails the first write, and remembers whether a later write was done */
+    private static class FailingFileHandler implements IFileHandler {
+        private boolean failed;
+        private boolean saved;
+
+        @Override
+        public synchronized void writeGameState(String filename, Game game) throws FileNotFoundException {
+            if (!failed) {
+                failed = true;
+                throw new FileNotFoundException("Disk full");
+            }
+            saved = true;
+        }
+
+        @Override
+        public Game readGameState(String filename) {
+            return null;
+        }
+
+        @Override
+        public synchronized boolean gameIsSaved(String filename) {
+            return saved;
+        }
+
+        @Override
+        public synchronized void deleteSave(String filename) {
+            saved = false;
+        }
+    }
+
+    /** Writes to a list, and waits for release before the first write is done */
+    private static class BlockingFileHandler implements IFileHandler {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Game> written = new ArrayList<>();
+
+        @Override
+        public void writeGameState(String filename, Game game) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (written) {
+                written.add(game);
+            }
+        }
+
+        @Override
+        public Game readGameState(String filename) {
+            return written.get(written.size() - 1);
+        }
+
+        @Override
+        public boolean gameIsSaved(String filename) {
+            return !written.isEmpty();
+        }
+
+        @Override
+        public void deleteSave(String filename) {
+            written.clear();
+        }
+    }
+}
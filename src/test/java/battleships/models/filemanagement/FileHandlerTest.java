@@ -142,6 +142,76 @@ public class FileHandlerTest {
 
     }
 
+    @Test
+    void testBinaryFormat() {
+        String binaryFileName = "testfiles/test" + SaveFormat.BINARY.getExtension();
+        File binaryFile = fileHandler.getReceiptFile(binaryFileName);
+        game.randomizeCurrentBoard();
+        game.switchPlayer();
+        game.randomizeCurrentBoard();
+        game.endPlacementPhase();
+        game.fireShot(2, 2);
+        game.fireShot(2, 3);
+        game.switchPlayer();
+        game.fireShot(2, 3);
+
+        Game game2 = null;
+        long binaryLength = 0;
+        try {
+            binaryFile.createNewFile();
+            fileHandler.writeGameState(binaryFileName, game);
+            fileHandler.writeGameState(fileName, game);
+            game2 = fileHandler.readGameState(binaryFileName);
+            binaryLength = binaryFile.length();
+        } catch (IOException e) {
+            fail("Failed to load file");
+        } finally {
+            binaryFile.delete();
+        }
+        assertEquals(game, game2);
+        assertEquals(game.serialize(), game2.serialize());
+        assertEquals(game.getCurrentPlayer().getShotsLeft(), game2.getCurrentPlayer().getShotsLeft());
+        // The binary save of a 6x6 game is more than ten times smaller
+        assertTrue(binaryLength > 0);
+        assertTrue(fileHandler.getReceiptFile(fileName).length() > 10 * binaryLength);
+    }
+
+    @Test
+    void testMoreShotsPerTurn() {
+        game = new Game(GameUtils.DEFAULT_RULES.withShotsPerTurn(5));
+        game.randomizeCurrentBoard();
+        game.submitBoard("Per");
+        game.randomizeCurrentBoard();
+        game.submitBoard("Gunnar");
+        game.fireShot(2, 2);
+
+        String binaryFileName = "testfiles/test" + SaveFormat.BINARY.getExtension();
+        File binaryFile = fileHandler.getReceiptFile(binaryFileName);
+        try {
+            binaryFile.createNewFile();
+            for (String name : new String[] { fileName, binaryFileName }) {
+                fileHandler.writeGameState(name, game);
+                Game loaded = fileHandler.readGameState(name);
+                assertEquals(game, loaded);
+                assertEquals(5, loaded.getRules().getShotsPerTurn());
+                assertEquals(4, loaded.getPlayer1().getShotsLeft());
+                assertEquals(5, loaded.getPlayer2().getMaxShots());
+            }
+        } catch (IOException e) {
+            fail("Failed to load file");
+        } finally {
+            binaryFile.delete();
+        }
+    }
+
+    @Test
+    void testSaveFormat() {
+        assertEquals(SaveFormat.TEXT, SaveFormat.forFileName("savedgame"));
+        assertEquals(SaveFormat.TEXT, SaveFormat.forFileName("savedgame.txt"));
+        assertEquals(SaveFormat.BINARY, SaveFormat.forFileName("savedgame.bsg"));
+        assertTrue(fileHandler.getReceiptFile("testfiles/test.bsg").getPath().endsWith("test.bsg"));
+    }
+
     @AfterEach
     void resetFile() {
         File writeFile = fileHandler.getReceiptFile(fileName);
@@ -0,0 +1,184 @@
+package battleships.models.filemanagement;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import battleships.models.Game;
+import battleships.models.GameUtils;
+
+public class JournalFileHandlerTest {
+
+    @TempDir
+    File folder;
+
+    private JournalFileHandler fileHandler;
+    private Game game;
+
+    @BeforeEach
+    void init() {
+        fileHandler = new JournalFileHandler(folder, 8, 1 << 20);
+        game = new Game(6, 6);
+        game.randomizeCurrentBoard();
+        game.submitBoard("Kåre");
+        game.randomizeCurrentBoard();
+        game.submitBoard("Gunnar");
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        fileHandler.close();
+    }
+
+    @Test
+    void testWriteAndRead() {
+        assertFalse(fileHandler.gameIsSaved("game1"));
+        assertThrows(IllegalStateException.class, () -> fileHandler.readGameState("game1"),
+                "No saved game exception");
+        fileHandler.writeGameState("game1", game);
+        assertTrue(fileHandler.gameIsSaved("game1"));
+        assertEquals(game, fileHandler.readGameState("game1"));
+
+        // A move only appends records to the journal
+        long snapshotSize = fileHandler.getJournalFile("game1").length();
+        game.fireShot(2, 2);
+        fileHandler.writeGameState("game1", game);
+        assertEquals(snapshotSize + 16, fileHandler.getJournalFile("game1").length());
+        game.fireShot(3, 2);
+        game.switchPlayer();
+        game.fireShot(0, 5);
+        fileHandler.writeGameState("game1", game);
+        Game loaded = fileHandler.readGameState("game1");
+        assertEquals(game, loaded);
+        assertEquals("Gunnar", loaded.getCurrentPlayer().getName());
+        assertEquals(2, loaded.getPlayer2().getShotsLeft());
+
+        fileHandler.deleteSave("game1");
+        assertFalse(fileHandler.gameIsSaved("game1"));
+    }
+
+    @Test
+    void testShotHistory() {
+        fileHandler.writeGameState("game1", game);
+        game.fireShot(1, 4);
+        fileHandler.writeGameState("game1", game);
+        game.switchPlayer();
+        game.fireShot(5, 0);
+        fileHandler.writeGameState("game1", game);
+
+        List<int[]> shots = fileHandler.readShotHistory("game1");
+        assertEquals(2, shots.size());
+        assertArrayEquals(new int[] { 1, 1, 4 }, shots.get(0));
+        assertArrayEquals(new int[] { 2, 5, 0 }, shots.get(1));
+    }
+
+    @Test
+    void testShotHistoryOfOneWrite() {
+        // Writes that are coalesced still keep the order shots were fired in
+        fileHandler.writeGameState("game1", game);
+        game.fireShot(1, 4);
+        game.switchPlayer();
+        game.fireShot(5, 0);
+        game.fireShot(5, 1);
+        game.switchPlayer();
+        game.fireShot(2, 2);
+        fileHandler.writeGameState("game1", game);
+
+        List<int[]> shots = fileHandler.readShotHistory("game1");
+        assertEquals(4, shots.size());
+        assertArrayEquals(new int[] { 1, 1, 4 }, shots.get(0));
+        assertArrayEquals(new int[] { 2, 5, 0 }, shots.get(1));
+        assertArrayEquals(new int[] { 2, 5, 1 }, shots.get(2));
+        assertArrayEquals(new int[] { 1, 2, 2 }, shots.get(3));
+        assertEquals(game, fileHandler.readGameState("game1"));
+    }
+
+    @Test
+    void testNewGameWithSameNames() {
+        fileHandler.writeGameState("game1", game);
+
+        // A new game with the same names and no shots yet is not appended to the
+        // journal of the old game
+        Game newGame = new Game(6, 6);
+        do {
+            newGame.randomizeCurrentBoard();
+        } while (newGame.getCurrentPlayer().getFriendlyBoard().equals(game.getPlayer1().getFriendlyBoard()));
+        newGame.submitBoard("Kåre");
+        newGame.randomizeCurrentBoard();
+        newGame.submitBoard("Gunnar");
+        newGame.fireShot(0, 0);
+        fileHandler.writeGameState("game1", newGame);
+        assertEquals(newGame, fileHandler.readGameState("game1"));
+    }
+
+    @Test
+    void testSnapshotsAndCompaction() throws IOException {
+        fileHandler.close();
+        fileHandler = new JournalFileHandler(folder, 4, 200);
+        fileHandler.writeGameState("game1", game);
+        for (int x = 0; x < 6; x++) {
+            for (int y = 0; y < 6; y++) {
+                if (game.getCurrentPlayer().getShotsLeft() == 0)
+                    game.switchPlayer();
+                game.fireShot(x, y);
+                fileHandler.writeGameState("game1", game);
+                assertEquals(game, fileHandler.readGameState("game1"));
+            }
+        }
+        // Compaction keeps the journal from growing with the amount of moves
+        assertTrue(fileHandler.getJournalFile("game1").length() < 400);
+
+        // A new game in the same save starts a new journal
+        Game newGame = new Game(6, 6);
+        newGame.randomizeCurrentBoard();
+        newGame.submitBoard("Per");
+        newGame.randomizeCurrentBoard();
+        newGame.submitBoard("Pål");
+        fileHandler.writeGameState("game1", newGame);
+        assertEquals(newGame, fileHandler.readGameState("game1"));
+        assertTrue(fileHandler.readShotHistory("game1").isEmpty());
+    }
+
+    @Test
+    void testMoreShotsPerTurn() {
+        Game fiveShots = new Game(GameUtils.DEFAULT_RULES.withShotsPerTurn(5));
+        fiveShots.randomizeCurrentBoard();
+        fiveShots.submitBoard("Kåre");
+        fiveShots.randomizeCurrentBoard();
+        fiveShots.submitBoard("Gunnar");
+        fileHandler.writeGameState("game1", fiveShots);
+        fiveShots.fireShot(2, 2);
+        fileHandler.writeGameState("game1", fiveShots);
+        Game loaded = fileHandler.readGameState("game1");
+        assertEquals(fiveShots, loaded);
+        assertEquals(4, loaded.getPlayer1().getShotsLeft());
+        assertEquals(5, loaded.getRules().getShotsPerTurn());
+    }
+
+    @Test
+    void testReopen() throws IOException {
+        fileHandler.writeGameState("game1", game);
+        game.fireShot(0, 0);
+        fileHandler.writeGameState("game1", game);
+        fileHandler.close();
+
+        JournalFileHandler reopened = new JournalFileHandler(folder, 8, 1 << 20);
+        Game loaded = reopened.readGameState("game1");
+        assertEquals(game, loaded);
+        loaded.fireShot(0, 1);
+        reopened.writeGameState("game1", loaded);
+        assertEquals(loaded, reopened.readGameState("game1"));
+        reopened.close();
+    }
+}
@@ -0,0 +1,138 @@
+package battleships.models.filemanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import battleships.models.Game;
+import battleships.models.GameUtils;
+
+public class MappedFileHandlerTest {
+
+    @TempDir
+    File folder;
+
+    private File storeFile;
+    private MappedFileHandler fileHandler;
+    private Game game;
+
+    @BeforeEach
+    void init() throws IOException {
+        storeFile = new File(folder, "store.bsm");
+        fileHandler = new MappedFileHandler(storeFile, 4, 100, 10);
+        game = new Game(6, 6);
+        game.randomizeCurrentBoard();
+        game.submitBoard("Kåre");
+        game.randomizeCurrentBoard();
+        game.submitBoard("Gunnar");
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        fileHandler.close();
+    }
+
+    @Test
+    void testWriteAndRead() {
+        assertFalse(fileHandler.gameIsSaved("game1"));
+        assertThrows(IllegalStateException.class, () -> fileHandler.readGameState("game1"),
+                "No saved game exception");
+        fileHandler.writeGameState("game1", game);
+        assertTrue(fileHandler.gameIsSaved("game1"));
+        assertEquals(game, fileHandler.readGameState("game1"));
+
+        // Later writes only update what changed
+        game.fireShot(2, 2);
+        game.fireShot(3, 2);
+        fileHandler.writeGameState("game1", game);
+        assertEquals(game, fileHandler.readGameState("game1"));
+        game.switchPlayer();
+        game.fireShot(0, 5);
+        fileHandler.writeGameState("game1", game);
+        Game loaded = fileHandler.readGameState("game1");
+        assertEquals(game, loaded);
+        assertEquals(game.getPlayer2(), game.getCurrentPlayer());
+        assertEquals(loaded.getPlayer2(), loaded.getCurrentPlayer());
+        assertEquals(game.serialize(), loaded.serialize());
+    }
+
+    @Test
+    void testMoreShotsPerTurn() {
+        Game fiveShots = new Game(GameUtils.DEFAULT_RULES.withShotsPerTurn(5));
+        fiveShots.randomizeCurrentBoard();
+        fiveShots.submitBoard("Kåre");
+        fiveShots.randomizeCurrentBoard();
+        fiveShots.submitBoard("Gunnar");
+        fiveShots.fireShot(2, 2);
+        fileHandler.writeGameState("game1", fiveShots);
+        Game loaded = fileHandler.readGameState("game1");
+        assertEquals(fiveShots, loaded);
+        assertEquals(4, loaded.getPlayer1().getShotsLeft());
+        assertEquals(5, loaded.getPlayer2().getMaxShots());
+    }
+
+    @Test
+    void testReopen() throws IOException {
+        fileHandler.writeGameState("game1", game);
+        game.fireShot(4, 4);
+        fileHandler.writeGameState("game2", game);
+        fileHandler.close();
+
+        fileHandler = new MappedFileHandler(storeFile, 4, 100, 10);
+        assertEquals(game, fileHandler.readGameState("game2"));
+        assertTrue(fileHandler.gameIsSaved("game1"));
+        assertThrows(IllegalArgumentException.class, () -> new MappedFileHandler(storeFile, 5, 100, 10),
+                "Other slot count than the existing store exception");
+    }
+
+    @Test
+    void testSlots() {
+        for (int i = 0; i < fileHandler.getSlotCount(); i++) {
+            fileHandler.writeGameState("game" + i, game);
+        }
+        assertThrows(IllegalStateException.class, () -> fileHandler.writeGameState("one too many", game),
+                "All slots in use exception");
+        fileHandler.deleteSave("game0");
+        assertFalse(fileHandler.gameIsSaved("game0"));
+        fileHandler.writeGameState("one too many", game);
+        assertEquals(game, fileHandler.readGameState("one too many"));
+        assertThrows(IllegalArgumentException.class,
+                () -> fileHandler.writeGameState("game1", new Game(12, 12)),
+                "Board larger than the slots exception");
+    }
+
+    @Test
+    void testInvalidWrites() {
+        String longName = "x".repeat(65);
+        assertThrows(IllegalArgumentException.class, () -> fileHandler.writeGameState(longName, game),
+                "Save name too long exception");
+        assertFalse(fileHandler.gameIsSaved(longName));
+        game.getPlayer2().setName(longName);
+        assertThrows(IllegalArgumentException.class, () -> fileHandler.writeGameState("game1", game),
+                "Player name too long exception");
+        assertFalse(fileHandler.gameIsSaved("game1"));
+        game.getPlayer2().setName("Gunnar");
+
+        // The failed writes took no slot, so every save gets its own
+        Game other = game.copy();
+        other.fireShot(1, 1);
+        fileHandler.writeGameState("game1", game);
+        fileHandler.writeGameState("game2", other);
+        assertEquals(game, fileHandler.readGameState("game1"));
+        assertEquals(other, fileHandler.readGameState("game2"));
+
+        // 65536 * 65536 overflows an int to 0
+        assertThrows(IllegalArgumentException.class,
+                () -> fileHandler.writeGameState("game3", new Game(65_536, 65_536)),
+                "Board larger than the slots exception");
+    }
+}
@@ -0,0 +1,235 @@
+package battleships.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import battleships.models.Game;
+import battleships.models.GameRules;
+import battleships.models.GameUtils;
+import battleships.models.ShotResult;
+import battleships.models.filemanagement.FileHandler;
+
+public class GameServerTest {
+
+    private SessionRegistry registry;
+    private GameServer server;
+    private InetSocketAddress address;
+
+    private void startServer(GameRules rules) throws IOException {
+        startServer(rules, new SessionRegistry(new FileHandler(), Long.MAX_VALUE));
+    }
+
+    private void startServer(GameRules rules, SessionRegistry registry) throws IOException {
+        this.registry = registry;
+        server = new GameServer(registry, rules, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                new SplittableRandom(1));
+        server.start();
+        address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+    }
+
+    @BeforeEach
+    void init() throws IOException {
+        startServer(GameUtils.DEFAULT_RULES);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        server.close();
+        registry.close();
+    }
+
+    private static long startGame(GameClient client) throws IOException {
+        long session = client.newSession();
+        client.randomizeBoard(session);
+        client.submitBoard(session);
+        client.randomizeBoard(session);
+        client.submitBoard(session);
+        return session;
+    }
+
+    /**
+     * Both players shoot every square in order, ending their turn when out of
+     * shots, until the game is over
+     *
+     * @return Amount of shots fired
+     */
+    private static int playToEnd(GameClient client, long session) throws IOException {
+        int[] next = new int[3];
+        int shots = 0;
+        while (true) {
+            int player = client.getCurrentPlayer();
+            int square = next[player]++;
+            ShotResult result = client.fireShot(session, player, square / 6, square % 6);
+            assertTrue(result.isFired(), "Shot was not fired");
+            shots++;
+            if (client.isGameOver())
+                return shots;
+            if (client.getShotsLeft() == 0)
+                client.switchPlayer(session, player);
+        }
+    }
+
+    @Test
+    void testPlayGame() throws IOException {
+        try (GameClient client = new GameClient(address)) {
+            long session = startGame(client);
+            assertEquals(1, client.getCurrentPlayer());
+            assertEquals(3, client.getShotsLeft());
+            assertEquals(ShotResult.NO_SHOTS_LEFT, client.fireShot(session, 2, 0, 0), "Not player 2's turn");
+
+            playToEnd(client, session);
+            int winner = client.getCurrentPlayer();
+            assertTrue(registry.withSession(session, Game::isGameOver));
+            assertEquals(winner == 1, registry.withSession(session,
+                    game -> game.getCurrentPlayer() == game.getPlayer1()));
+
+            client.closeSession(session);
+            assertEquals(0, registry.getSessionCount());
+        }
+    }
+
+    @Test
+    void testBatchedShots() throws IOException {
+        server.close();
+        registry.close();
+        startServer(new GameRules(6, 6, new int[] { 4, 3, 2 }, 36, true));
+        try (GameClient client = new GameClient(address)) {
+            long session = startGame(client);
+            int[] xs = new int[36];
+            int[] ys = new int[36];
+            for (int i = 0; i < 36; i++) {
+                xs[i] = i / 6;
+                ys[i] = i % 6;
+            }
+            ShotResult[] results = client.fireShots(session, 1, xs, ys);
+            int hits = 0;
+            for (ShotResult result : results) {
+                assertTrue(result.isFired());
+                if (result.isHit())
+                    hits++;
+            }
+            assertEquals(9, hits);
+            assertTrue(client.isGameOver());
+        }
+    }
+
+    @Test
+    void testRejectedRequests() throws IOException {
+        try (GameClient client = new GameClient(address)) {
+            assertThrows(IllegalStateException.class, () -> client.fireShot(42, 1, 0, 0), "No session exception");
+            long session = client.newSession();
+            assertThrows(IllegalStateException.class, () -> client.switchPlayer(session, 1),
+                    "Switch during placement exception");
+            assertThrows(IllegalStateException.class, () -> client.fireShot(session, 1, 0, 0),
+                    "Shot during placement exception");
+            // The connection is still usable after rejected requests
+            client.randomizeBoard(session);
+            client.submitBoard(session);
+            assertEquals(2, client.getCurrentPlayer());
+            client.closeSession(session);
+            assertThrows(IllegalStateException.class, () -> client.closeSession(session),
+                    "Closed session exception");
+        }
+    }
+
+    @Test
+    void testLargeSessionIds() throws IOException {
+        server.close();
+        registry.close();
+        startServer(GameUtils.DEFAULT_RULES, new OffsetRegistry());
+        try (GameClient client = new GameClient(address)) {
+            long session = startGame(client);
+            assertTrue(session > Integer.MAX_VALUE);
+            playToEnd(client, session);
+            client.closeSession(session);
+            assertEquals(0, registry.getSessionCount());
+        }
+    }
+
+    @Test
+    void testModelFailure() throws IOException {
+        server.close();
+        registry.close();
+        startServer(GameUtils.DEFAULT_RULES, new OffsetRegistry());
+        try (GameClient client = new GameClient(address)) {
+            // An unexpected exception is answered like any rejected request, and
+            // the server keeps going
+            assertThrows(IllegalStateException.class, () -> client.fireShot(OffsetRegistry.offset, 1, 0, 0),
+                    "Failed request exception");
+            long session = startGame(client);
+            client.closeSession(session);
+        }
+    }
+
+    /**
+     * Gives sessions ids above Integer.MAX_VALUE, and fails the session with id
+     * offset with an exception the server does not expect
+     */
+    private static class OffsetRegistry extends SessionRegistry {
+        static final long offset = 0xf000_0000L;
+
+        OffsetRegistry() {
+            super(new FileHandler(), Long.MAX_VALUE);
+        }
+
+        @Override
+        public long createSession(Game game) {
+            return super.createSession(game) + offset;
+        }
+
+        @Override
+        public <T> T withSession(long id, Function<Game, T> action) {
+            if (id == offset)
+                throw new UnsupportedOperationException("Broken session");
+            return super.withSession(id - offset, action);
+        }
+
+        @Override
+        public boolean closeSession(long id) {
+            return super.closeSession(id - offset);
+        }
+    }
+
+    @Test
+    void testManyClients() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int c = 0; c < 4; c++) {
+                results.add(pool.submit(() -> {
+                    int shots = 0;
+                    try (GameClient client = new GameClient(address)) {
+                        for (int game = 0; game < 50; game++) {
+                            long session = startGame(client);
+                            shots += playToEnd(client, session);
+                            client.closeSession(session);
+                        }
+                    }
+                    return shots;
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertTrue(result.get() >= 50 * 9);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(0, registry.getSessionCount());
+    }
+}
@@ -0,0 +1,214 @@
+package battleships.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import battleships.models.Game;
+import battleships.models.GameUtils;
+import battleships.models.ShotResult;
+import battleships.models.filemanagement.IFileHandler;
+import battleships.models.filemanagement.MappedFileHandler;
+
+public class SessionRegistryTest {
+
+    @TempDir
+    File folder;
+
+    private static Game newGame(SplittableRandom random) {
+        Game game = new Game(6, 6);
+        game.randomizeCurrentBoard(random);
+        game.submitBoard("Kåre");
+        game.randomizeCurrentBoard(random);
+        game.submitBoard("Gunnar");
+        return game;
+    }
+
+    @Test
+    void testFireShot() {
+        try (SessionRegistry registry = new SessionRegistry(new MapFileHandler(), Long.MAX_VALUE)) {
+            long id = registry.createSession(newGame(new SplittableRandom(1)));
+            assertEquals(1, registry.getSessionCount());
+            assertEquals(ShotResult.NO_SHOTS_LEFT, registry.fireShot(id, 2, 0, 0), "Not player 2's turn");
+            assertThrows(IllegalArgumentException.class, () -> registry.fireShot(id, 3, 0, 0), "No player 3");
+            assertThrows(IllegalArgumentException.class, () -> registry.fireShot(id + 1, 1, 0, 0), "No session");
+
+            assertTrue(registry.fireShot(id, 1, 0, 0).isFired());
+            assertEquals(ShotResult.ALREADY_SHOT, registry.fireShot(id, 1, 0, 0));
+            assertTrue(registry.fireShot(id, 1, 0, 1).isFired());
+            assertTrue(registry.fireShot(id, 1, 0, 2).isFired());
+            assertEquals(ShotResult.NO_SHOTS_LEFT, registry.fireShot(id, 1, 0, 3), "Turn should have switched");
+            assertTrue(registry.fireShot(id, 2, 0, 0).isFired());
+
+            assertTrue(registry.closeSession(id));
+            assertFalse(registry.closeSession(id));
+            assertThrows(IllegalArgumentException.class, () -> registry.fireShot(id, 2, 0, 1), "Closed session");
+        }
+    }
+
+    @Test
+    void testEviction() throws IOException {
+        try (MappedFileHandler store = new MappedFileHandler(new File(folder, "sessions.bsm"), 4, 36, 100);
+                SessionRegistry registry = new SessionRegistry(store, 0)) {
+            long id = registry.createSession(newGame(new SplittableRandom(2)));
+            registry.fireShot(id, 1, 2, 3);
+            String before = registry.withSession(id, Game::serialize);
+
+            assertEquals(1, registry.evictIdle());
+            assertFalse(registry.isResident(id));
+            assertTrue(store.gameIsSaved("session-" + id));
+            assertEquals(0, registry.evictIdle(), "Evicted sessions are not evicted again");
+
+            assertEquals(before, registry.withSession(id, Game::serialize));
+            assertTrue(registry.isResident(id));
+            assertFalse(store.gameIsSaved("session-" + id), "Save is dropped once the game is read back");
+            int shotsLeft = registry.withSession(id, game -> game.getCurrentPlayer().getShotsLeft());
+            assertEquals(2, shotsLeft);
+
+            registry.evictIdle();
+            assertTrue(registry.closeSession(id));
+            assertFalse(store.gameIsSaved("session-" + id), "Closing an evicted session deletes its save");
+        }
+    }
+
+    @Test
+    void testEvictionKeepsWhatCannotBeRestored() throws IOException {
+        try (MappedFileHandler store = new MappedFileHandler(new File(folder, "sessions.bsm"), 4, 36, 100);
+                SessionRegistry registry = new SessionRegistry(store, 0)) {
+            // Games in their placement phase are not evicted
+            long placing = registry.createSession(new Game(6, 6));
+            assertEquals(0, registry.evictIdle());
+            assertTrue(registry.isResident(placing));
+            registry.withSession(placing, game -> {
+                game.randomizeCurrentBoard();
+                return null;
+            });
+
+            // Rules with more shots per turn than the default survive eviction
+            Game game = new Game(GameUtils.DEFAULT_RULES.withShotsPerTurn(5));
+            SplittableRandom random = new SplittableRandom(4);
+            game.randomizeCurrentBoard(random);
+            game.submitBoard("Kåre");
+            game.randomizeCurrentBoard(random);
+            game.submitBoard("Gunnar");
+            long fiveShots = registry.createSession(game);
+            registry.fireShot(fiveShots, 1, 0, 0);
+            assertEquals(1, registry.evictIdle());
+            assertFalse(registry.isResident(fiveShots));
+            int shotsLeft = registry.withSession(fiveShots, g -> g.getCurrentPlayer().getShotsLeft());
+            assertEquals(4, shotsLeft);
+        }
+
+        // A game the store cannot give back stays in memory
+        MapFileHandler unreadable = new MapFileHandler() {
+            @Override
+            public Game readGameState(String filename) throws IllegalStateException {
+                throw new IllegalStateException("Unreadable save");
+            }
+        };
+        try (SessionRegistry registry = new SessionRegistry(unreadable, 0)) {
+            long id = registry.createSession(newGame(new SplittableRandom(5)));
+            assertEquals(0, registry.evictIdle());
+            assertTrue(registry.isResident(id));
+            assertTrue(unreadable.saves.isEmpty(), "The unreadable save is deleted");
+            assertTrue(registry.fireShot(id, 1, 0, 0).isFired());
+        }
+    }
+
+    @Test
+    void testConcurrentSessions() throws Exception {
+        int sessions = 2000;
+        MapFileHandler store = new MapFileHandler();
+        SplittableRandom random = new SplittableRandom(3);
+        // Evicts sessions as soon as they are not in use
+        try (SessionRegistry registry = new SessionRegistry(store, 0, TimeUnit.MILLISECONDS.toNanos(1))) {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                ids.add(registry.createSession(newGame(random)));
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<Integer>> results = new ArrayList<>();
+                for (long id : ids) {
+                    results.add(pool.submit(() -> playToEnd(registry, id)));
+                }
+                for (Future<Integer> result : results) {
+                    int winner = result.get();
+                    assertTrue(winner == 1 || winner == 2);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            for (long id : ids) {
+                assertTrue(registry.withSession(id, Game::isGameOver));
+            }
+            assertEquals(sessions, registry.getSessionCount());
+            assertTrue(store.reads.get() > 0, "Some sessions should have been evicted while playing");
+        }
+    }
+
+    /**
+     * Both players shoot every square in order until the game is over
+     *
+     * @return Winning player
+     */
+    private static int playToEnd(SessionRegistry registry, long id) {
+        int[] next = new int[3];
+        while (true) {
+            int player = registry.withSession(id,
+                    game -> game.getCurrentPlayer() == game.getPlayer1() ? 1 : 2);
+            int square = next[player]++;
+            ShotResult result = registry.fireShot(id, player, square / 6, square % 6);
+            assertTrue(result.isFired(), "Shot was not fired");
+            if (result.isHit() && registry.withSession(id, Game::isGameOver))
+                return player;
+        }
+    }
+
+    /** Keeps copies of the saved games in memory */
+    private static class MapFileHandler implements IFileHandler {
+        final Map<String, Game> saves = new ConcurrentHashMap<>();
+        final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public Game readGameState(String filename) throws IllegalStateException {
+            Game game = saves.get(filename);
+            if (game == null)
+                throw new IllegalStateException("No saved game");
+            reads.incrementAndGet();
+            return game.copy();
+        }
+
+        @Override
+        public void writeGameState(String filename, Game game) {
+            saves.put(filename, game.copy());
+        }
+
+        @Override
+        public boolean gameIsSaved(String filename) {
+            return saves.containsKey(filename);
+        }
+
+        @Override
+        public void deleteSave(String filename) {
+            saves.remove(filename);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package battleships.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import battleships.models.Game;
+import battleships.models.GameBoard;
+
+public class SimulatorTest {
+
+    @Test
+    void testRun() {
+        Simulator simulator = new Simulator(6, 6, new RandomStrategy(new SplittableRandom(1)),
+                new HuntTargetStrategy(new SplittableRandom(2)));
+        SimulationResult result = simulator.run(200);
+        assertEquals(200, result.getGames());
+        assertEquals(result.getGames(), result.getStrategy1Wins() + result.getStrategy2Wins());
+        assertEquals(1.0, result.getStrategy1WinRate() + result.getStrategy2WinRate(), 1e-9);
+        // The fleet covers 9 squares and a player fires 3 shots per turn, so the
+        // winner needs at least 3 of their own turns, and never more than 12
+        assertTrue(result.getAverageTurns() >= 5);
+        assertTrue(result.getAverageTurns() <= 24);
+        assertTrue(result.getGamesPerSecond() > 0);
+        assertTrue(result.getStrategy2Wins() > result.getStrategy1Wins(),
+                "Hunt and target should beat random shooting");
+    }
+
+    @Test
+    void testInvalidShot() {
+        ShootingStrategy cornerShooter = new ShootingStrategy() {
+            @Override
+            public void newGame(Game game) {
+            }
+
+            @Override
+            public long nextShot(GameBoard enemyBoard) {
+                return ShootingStrategy.shot(0, 0);
+            }
+        };
+        Simulator simulator = new Simulator(6, 6, cornerShooter, cornerShooter);
+        assertThrows(IllegalStateException.class, () -> simulator.run(1),
+                "Shooting the same square twice exception");
+    }
+
+    @Test
+    void testShotEncoding() {
+        long shot = ShootingStrategy.shot(70_000, 3);
+        assertEquals(70_000, ShootingStrategy.shotX(shot));
+        assertEquals(3, ShootingStrategy.shotY(shot));
+    }
+}
@@ -0,0 +1,37 @@
+package battleships.sim;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class TournamentTest {
+
+    @Test
+    void testReproducibleFromSeed() {
+        Tournament singleThreaded = new Tournament(6, 6, RandomStrategy::new, HuntTargetStrategy::new, 1);
+        Tournament multiThreaded = new Tournament(6, 6, RandomStrategy::new, HuntTargetStrategy::new, 4);
+        TournamentResult expected = singleThreaded.run(5000, 7);
+        TournamentResult actual = multiThreaded.run(5000, 7);
+
+        assertEquals(5000, actual.getGames());
+        assertEquals(expected.getStrategy1Wins(), actual.getStrategy1Wins());
+        assertEquals(expected.getStrategy2Wins(), actual.getStrategy2Wins());
+        assertEquals(expected.getAverageTurns(), actual.getAverageTurns());
+        assertArrayEquals(expected.getTurnHistogram(), actual.getTurnHistogram());
+
+        long histogramGames = 0;
+        for (long games : actual.getTurnHistogram()) {
+            histogramGames += games;
+        }
+        assertEquals(actual.getGames(), histogramGames);
+    }
+
+    @Test
+    void testConstructor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new Tournament(6, 6, RandomStrategy::new, RandomStrategy::new, 0),
+                "No worker threads exception");
+    }
+}